@@ -0,0 +1,18 @@
+package com.github.eduramiba.javafx.auth0.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a Jackson serializer and deserializer for the annotated class at compile time, registered in {@code GeneratedJSONCodecsModule}.
+ * <p>
+ * The class must have a creator: a constructor with {@code @ConstructorProperties}, or a constructor or static factory annotated with {@code @JsonCreator} whose parameters have {@code @JsonProperty}. Properties are
+ * written from the public getters of the class, skipping null values.
+ * </p>
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateJSONCodec {
+}
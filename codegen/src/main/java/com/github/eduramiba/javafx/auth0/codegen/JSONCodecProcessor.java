@@ -0,0 +1,515 @@
+package com.github.eduramiba.javafx.auth0.codegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code <Type>JSONCodec} class with a Jackson serializer and deserializer for each class annotated with {@link GenerateJSONCodec}, plus the {@code GeneratedJSONCodecsModule} that registers all of them.
+ * <p>
+ * The generated code reads and writes tokens directly, so mappers using the module skip bean introspection and reflective creator calls for these types.
+ * </p>
+ */
+@SupportedAnnotationTypes("com.github.eduramiba.javafx.auth0.codegen.GenerateJSONCodec")
+public class JSONCodecProcessor extends AbstractProcessor {
+
+    private static final String MODULE_PACKAGE = "com.github.eduramiba.javafx.auth0.utils";
+    private static final String MODULE_NAME = "GeneratedJSONCodecsModule";
+
+    private static final String JSON_CREATOR = "com.fasterxml.jackson.annotation.JsonCreator";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+    private static final String CONSTRUCTOR_PROPERTIES = "java.beans.ConstructorProperties";
+
+    private boolean moduleGenerated = false;
+
+    private static class Property {
+
+        private final String name;
+        private final TypeMirror type;
+        private final String accessor;
+
+        public Property(String name, TypeMirror type, String accessor) {
+            this.name = name;
+            this.type = type;
+            this.accessor = accessor;
+        }
+    }
+
+    private static class Codec {
+
+        private final String typeName;
+        private final String packageName;
+        private final String codecName;
+        private final String creatorCall;
+        private final List<Property> creatorParameters;
+        private final List<Property> getters;
+
+        public Codec(String typeName, String packageName, String codecName, String creatorCall, List<Property> creatorParameters, List<Property> getters) {
+            this.typeName = typeName;
+            this.packageName = packageName;
+            this.codecName = codecName;
+            this.creatorCall = creatorCall;
+            this.creatorParameters = creatorParameters;
+            this.getters = getters;
+        }
+
+        public String getQualifiedCodecName() {
+            return packageName + "." + codecName;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final List<Codec> codecs = new ArrayList<>();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateJSONCodec.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateJSONCodec only applies to classes");
+                continue;
+            }
+
+            try {
+                final Codec codec = buildCodec((TypeElement) element);
+                writeCodec(codec, element);
+                codecs.add(codec);
+            } catch (IllegalArgumentException ex) {
+                error(element, ex.getMessage());
+            } catch (IOException ex) {
+                error(element, "Could not write JSON codec: " + ex.getMessage());
+            }
+        }
+
+        if (!codecs.isEmpty()) {
+            if (moduleGenerated) {
+                error(null, "@GenerateJSONCodec classes found in a later processing round, they must not be generated by other processors");
+            } else {
+                try {
+                    writeModule(codecs);
+                    moduleGenerated = true;
+                } catch (IOException ex) {
+                    error(null, "Could not write " + MODULE_NAME + ": " + ex.getMessage());
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private Codec buildCodec(final TypeElement type) {
+        if (!type.getModifiers().contains(Modifier.PUBLIC)
+                || (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC))) {
+            throw new IllegalArgumentException("@GenerateJSONCodec classes must be public and, if nested, static");
+        }
+
+        final String typeName = type.getQualifiedName().toString();
+        final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+
+        //Nested classes are flattened: Outer.Inner -> Outer_InnerJSONCodec
+        final String relativeName = packageName.isEmpty() ? typeName : typeName.substring(packageName.length() + 1);
+        final String codecName = relativeName.replace('.', '_') + "JSONCodec";
+
+        ExecutableElement creator = null;
+        List<Property> creatorParameters = null;
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.CONSTRUCTOR && member.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+
+            final ExecutableElement executable = (ExecutableElement) member;
+            final Optional<List<Property>> parameters = creatorParameters(executable);
+            if (parameters.isPresent()) {
+                if (creator != null) {
+                    throw new IllegalArgumentException("More than one JSON creator found");
+                }
+
+                creator = executable;
+                creatorParameters = parameters.get();
+            }
+        }
+
+        if (creator == null) {
+            throw new IllegalArgumentException("No JSON creator found, add @ConstructorProperties to a public constructor or @JsonCreator with @JsonProperty parameters");
+        }
+
+        if (!creator.getModifiers().contains(Modifier.PUBLIC)) {
+            throw new IllegalArgumentException("The JSON creator must be public");
+        }
+
+        final String creatorCall;
+        if (creator.getKind() == ElementKind.CONSTRUCTOR) {
+            creatorCall = "new " + typeName;
+        } else if (creator.getModifiers().contains(Modifier.STATIC)) {
+            creatorCall = typeName + "." + creator.getSimpleName();
+        } else {
+            throw new IllegalArgumentException("JSON creator methods must be static");
+        }
+
+        return new Codec(typeName, packageName, codecName, creatorCall, creatorParameters, getters(type, creatorParameters));
+    }
+
+    private Optional<List<Property>> creatorParameters(final ExecutableElement executable) {
+        final List<String> constructorProperties = annotation(executable, CONSTRUCTOR_PROPERTIES)
+                .map(mirror -> stringValues(mirror, "value"))
+                .orElse(null);
+        final boolean jsonCreator = annotation(executable, JSON_CREATOR).isPresent();
+
+        if (constructorProperties == null && !jsonCreator) {
+            return Optional.empty();
+        }
+
+        final List<? extends VariableElement> parameters = executable.getParameters();
+        if (constructorProperties != null && constructorProperties.size() != parameters.size()) {
+            throw new IllegalArgumentException("@ConstructorProperties names don't match the constructor parameters");
+        }
+
+        final List<Property> properties = new ArrayList<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            final VariableElement parameter = parameters.get(i);
+
+            String name = jsonPropertyName(parameter).orElse(null);
+            if (name == null && constructorProperties != null) {
+                name = constructorProperties.get(i);
+            }
+            if (name == null) {
+                throw new IllegalArgumentException("Parameter " + parameter.getSimpleName() + " of the JSON creator needs @JsonProperty");
+            }
+
+            properties.add(new Property(name, parameter.asType(), null));
+        }
+
+        return Optional.of(properties);
+    }
+
+    private List<Property> getters(final TypeElement type, final List<Property> creatorParameters) {
+        final Map<String, Property> getters = new LinkedHashMap<>();
+
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+
+            final ExecutableElement method = (ExecutableElement) member;
+            final Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)
+                    || !method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID
+                    || annotation(method, JSON_IGNORE).isPresent()) {
+                continue;
+            }
+
+            final String methodName = method.getSimpleName().toString();
+            final String beanName;
+            if (methodName.startsWith("get") && methodName.length() > 3) {
+                beanName = methodName.substring(3);
+            } else if (methodName.startsWith("is") && methodName.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+                beanName = methodName.substring(2);
+            } else {
+                continue;
+            }
+
+            final String name = jsonPropertyName(method).orElseGet(() -> manglePropertyName(beanName));
+            getters.put(name, new Property(name, method.getReturnType(), methodName));
+        }
+
+        //Same order as Jackson: properties of the creator first, then the rest in declaration order:
+        final List<Property> ordered = new ArrayList<>();
+        for (Property parameter : creatorParameters) {
+            final Property getter = getters.remove(parameter.name);
+            if (getter != null) {
+                ordered.add(getter);
+            }
+        }
+        ordered.addAll(getters.values());
+
+        return ordered;
+    }
+
+    /**
+     * Same as Jackson default naming: leading upper case characters are lower cased, so {@code AvatarURL} becomes {@code avatarURL} and {@code URL} becomes {@code url}.
+     */
+    private static String manglePropertyName(final String beanName) {
+        final StringBuilder sb = new StringBuilder(beanName.length());
+        int i = 0;
+        while (i < beanName.length() && Character.isUpperCase(beanName.charAt(i))) {
+            sb.append(Character.toLowerCase(beanName.charAt(i)));
+            i++;
+        }
+        sb.append(beanName, i, beanName.length());
+
+        return sb.toString();
+    }
+
+    private void writeCodec(final Codec codec, final Element origin) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+
+        if (!codec.packageName.isEmpty()) {
+            sb.append("package ").append(codec.packageName).append(";\n\n");
+        }
+
+        sb.append("import com.fasterxml.jackson.core.JsonGenerator;\n");
+        sb.append("import com.fasterxml.jackson.core.JsonParser;\n");
+        sb.append("import com.fasterxml.jackson.core.JsonToken;\n");
+        sb.append("import com.fasterxml.jackson.core.type.TypeReference;\n");
+        sb.append("import com.fasterxml.jackson.databind.DeserializationContext;\n");
+        sb.append("import com.fasterxml.jackson.databind.JavaType;\n");
+        sb.append("import com.fasterxml.jackson.databind.SerializerProvider;\n");
+        sb.append("import com.fasterxml.jackson.databind.deser.std.StdDeserializer;\n");
+        sb.append("import com.fasterxml.jackson.databind.ser.std.StdSerializer;\n");
+        sb.append("import com.fasterxml.jackson.databind.type.TypeFactory;\n");
+        sb.append("import java.io.IOException;\n");
+        sb.append("import javax.annotation.processing.Generated;\n\n");
+
+        sb.append("/**\n * JSON codec of {@link ").append(codec.typeName).append("}, generated at compile time. Do not edit.\n */\n");
+        sb.append("@Generated(\"").append(JSONCodecProcessor.class.getName()).append("\")\n");
+        sb.append("public final class ").append(codec.codecName).append(" {\n\n");
+
+        //Types of properties that are delegated to Jackson, resolved once:
+        for (int i = 0; i < codec.creatorParameters.size(); i++) {
+            final TypeMirror type = codec.creatorParameters.get(i).type;
+            if (!isPrimitive(type) && !isString(type)) {
+                sb.append("    private static final JavaType TYPE_").append(i)
+                        .append(" = TypeFactory.defaultInstance().constructType(new TypeReference<").append(type).append(">() {\n    });\n");
+            }
+        }
+
+        sb.append("\n    private ").append(codec.codecName).append("() {\n    }\n\n");
+
+        writeSerializer(sb, codec);
+        sb.append("\n");
+        writeDeserializer(sb, codec);
+
+        sb.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(codec.getQualifiedCodecName(), origin).openWriter()) {
+            writer.write(sb.toString());
+        }
+    }
+
+    private void writeSerializer(final StringBuilder sb, final Codec codec) {
+        sb.append("    public static class Serializer extends StdSerializer<").append(codec.typeName).append("> {\n\n");
+        sb.append("        public Serializer() {\n            super(").append(codec.typeName).append(".class);\n        }\n\n");
+        sb.append("        @Override\n");
+        sb.append("        public void serialize(").append(codec.typeName).append(" value, JsonGenerator gen, SerializerProvider provider) throws IOException {\n");
+        sb.append("            gen.writeStartObject(value);\n");
+
+        for (int i = 0; i < codec.getters.size(); i++) {
+            final Property getter = codec.getters.get(i);
+            final String name = literal(getter.name);
+            final String local = "v" + i;
+
+            sb.append("\n            final ").append(getter.type).append(" ").append(local).append(" = value.").append(getter.accessor).append("();\n");
+            if (getter.type.getKind() == TypeKind.BOOLEAN) {
+                sb.append("            gen.writeBooleanField(").append(name).append(", ").append(local).append(");\n");
+            } else if (isPrimitive(getter.type) && getter.type.getKind() != TypeKind.CHAR) {
+                sb.append("            gen.writeNumberField(").append(name).append(", ").append(local).append(");\n");
+            } else if (isString(getter.type)) {
+                sb.append("            if (").append(local).append(" != null) {\n");
+                sb.append("                gen.writeStringField(").append(name).append(", ").append(local).append(");\n");
+                sb.append("            }\n");
+            } else if (getter.type.getKind() == TypeKind.CHAR) {
+                sb.append("            gen.writeStringField(").append(name).append(", String.valueOf(").append(local).append("));\n");
+            } else {
+                //Null values are skipped, like the NON_ABSENT inclusion of the app writers:
+                sb.append("            if (").append(local).append(" != null) {\n");
+                sb.append("                provider.defaultSerializeField(").append(name).append(", ").append(local).append(", gen);\n");
+                sb.append("            }\n");
+            }
+        }
+
+        sb.append("\n            gen.writeEndObject();\n");
+        sb.append("        }\n");
+        sb.append("    }\n");
+    }
+
+    private void writeDeserializer(final StringBuilder sb, final Codec codec) {
+        sb.append("    public static class Deserializer extends StdDeserializer<").append(codec.typeName).append("> {\n\n");
+        sb.append("        public Deserializer() {\n            super(").append(codec.typeName).append(".class);\n        }\n\n");
+        sb.append("        @Override\n");
+        sb.append("        public ").append(codec.typeName).append(" deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {\n");
+        sb.append("            JsonToken token = p.currentToken();\n");
+        sb.append("            if (token == JsonToken.START_OBJECT) {\n");
+        sb.append("                token = p.nextToken();\n");
+        sb.append("            } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {\n");
+        sb.append("                return (").append(codec.typeName).append(") ctxt.handleUnexpectedToken(").append(codec.typeName).append(".class, p);\n");
+        sb.append("            }\n\n");
+
+        for (int i = 0; i < codec.creatorParameters.size(); i++) {
+            final TypeMirror type = codec.creatorParameters.get(i).type;
+            sb.append("            ").append(type).append(" p").append(i).append(" = ").append(defaultValue(type)).append(";\n");
+        }
+
+        sb.append("\n            for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {\n");
+        sb.append("                final String field = p.currentName();\n");
+        sb.append("                p.nextToken();\n\n");
+        sb.append("                switch (field) {\n");
+
+        for (int i = 0; i < codec.creatorParameters.size(); i++) {
+            final Property parameter = codec.creatorParameters.get(i);
+            sb.append("                    case ").append(literal(parameter.name)).append(":\n");
+            sb.append("                        p").append(i).append(" = ").append(readExpression(parameter.type, i)).append(";\n");
+            sb.append("                        break;\n");
+        }
+
+        sb.append("                    default:\n");
+        sb.append("                        p.skipChildren();\n");
+        sb.append("                }\n");
+        sb.append("            }\n\n");
+
+        sb.append("            return ").append(codec.creatorCall).append("(");
+        for (int i = 0; i < codec.creatorParameters.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("p").append(i);
+        }
+        sb.append(");\n");
+        sb.append("        }\n");
+        sb.append("    }\n");
+    }
+
+    private void writeModule(final List<Codec> codecs) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("package ").append(MODULE_PACKAGE).append(";\n\n");
+        sb.append("import com.fasterxml.jackson.databind.module.SimpleModule;\n");
+        sb.append("import javax.annotation.processing.Generated;\n\n");
+        sb.append("/**\n * Registers the JSON codecs generated at compile time for the classes annotated with {@code @GenerateJSONCodec}. Do not edit.\n */\n");
+        sb.append("@Generated(\"").append(JSONCodecProcessor.class.getName()).append("\")\n");
+        sb.append("public class ").append(MODULE_NAME).append(" extends SimpleModule {\n\n");
+        sb.append("    public ").append(MODULE_NAME).append("() {\n");
+        sb.append("        super(\"").append(MODULE_NAME).append("\");\n\n");
+
+        for (Codec codec : codecs) {
+            sb.append("        addSerializer(").append(codec.typeName).append(".class, new ").append(codec.getQualifiedCodecName()).append(".Serializer());\n");
+            sb.append("        addDeserializer(").append(codec.typeName).append(".class, new ").append(codec.getQualifiedCodecName()).append(".Deserializer());\n");
+        }
+
+        sb.append("    }\n");
+        sb.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(MODULE_PACKAGE + "." + MODULE_NAME).openWriter()) {
+            writer.write(sb.toString());
+        }
+    }
+
+    private static String readExpression(final TypeMirror type, final int index) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "p.getValueAsBoolean()";
+            case INT:
+                return "p.getValueAsInt()";
+            case LONG:
+                return "p.getValueAsLong()";
+            case DOUBLE:
+                return "p.getValueAsDouble()";
+            case FLOAT:
+                return "(float) p.getValueAsDouble()";
+            case SHORT:
+                return "(short) p.getValueAsInt()";
+            case BYTE:
+                return "(byte) p.getValueAsInt()";
+            case CHAR:
+                return "p.currentToken() == JsonToken.VALUE_STRING && p.getTextLength() > 0 ? p.getText().charAt(0) : '\\0'";
+            default:
+                if (isString(type)) {
+                    return "p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsString()";
+                }
+
+                return "p.currentToken() == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, TYPE_" + index + ")";
+        }
+    }
+
+    private static String defaultValue(final TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case CHAR:
+                return "'\\0'";
+            case LONG:
+                return "0L";
+            case FLOAT:
+                return "0f";
+            case DOUBLE:
+                return "0d";
+            case INT:
+            case SHORT:
+            case BYTE:
+                return "0";
+            default:
+                return "null";
+        }
+    }
+
+    private static boolean isPrimitive(final TypeMirror type) {
+        return type.getKind().isPrimitive();
+    }
+
+    private static boolean isString(final TypeMirror type) {
+        return "java.lang.String".equals(type.toString());
+    }
+
+    private static String literal(final String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static Optional<? extends AnnotationMirror> annotation(final Element element, final String annotationType) {
+        return element.getAnnotationMirrors().stream()
+                .filter(mirror -> ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType))
+                .findFirst();
+    }
+
+    private Optional<String> jsonPropertyName(final Element element) {
+        return annotation(element, JSON_PROPERTY)
+                .map(mirror -> stringValues(mirror, "value"))
+                .filter(values -> !values.isEmpty() && !values.get(0).isEmpty())
+                .map(values -> values.get(0));
+    }
+
+    private static List<String> stringValues(final AnnotationMirror mirror, final String name) {
+        final List<String> values = new ArrayList<>();
+
+        mirror.getElementValues().forEach((key, value) -> {
+            if (key.getSimpleName().contentEquals(name)) {
+                final Object content = value.getValue();
+                if (content instanceof List) {
+                    for (Object item : (List<?>) content) {
+                        values.add(String.valueOf(((AnnotationValue) item).getValue()));
+                    }
+                } else {
+                    values.add(String.valueOf(content));
+                }
+            }
+        });
+
+        return values;
+    }
+
+    private void error(final Element element, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
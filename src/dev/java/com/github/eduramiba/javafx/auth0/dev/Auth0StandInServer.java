@@ -0,0 +1,382 @@
+package com.github.eduramiba.javafx.auth0.dev;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.github.eduramiba.javafx.auth0.rest.login.Auth0Settings;
+import com.github.eduramiba.javafx.auth0.rest.login.JSONWebKeySet;
+import com.github.eduramiba.javafx.auth0.rest.login.PKCEFlowFactory;
+import com.github.eduramiba.javafx.auth0.utils.Utils;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process stand-in of the Auth0 endpoints used by the app, for offline development, integration tests and load tests.
+ * <p>
+ * Implements {@code /authorize} (logs the configured user in right away), {@code /oauth/token} with the {@code authorization_code} (PKCE checked) and {@code refresh_token} grants, {@code /userinfo} and
+ * {@code /.well-known/jwks.json}. Id tokens are RS256 signed with a key generated on start. Latency, error rate and token lifetime are configurable.
+ * </p>
+ */
+public class Auth0StandInServer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Auth0StandInServer.class);
+
+    private static final String KEY_ID = "stand-in-key";
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final String clientId;
+    private final String email;
+    private final String name;
+    private final String picture;
+    private final long latencyMillis;
+    private final double errorRate;
+    private final long tokenLifetimeSeconds;
+
+    private final MockWebServer server = new MockWebServer();
+    private final RSAPublicKey publicKey;
+    private final RSAPrivateKey privateKey;
+
+    private final Map<String, AuthorizationRequest> codes = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> refreshTokens = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> accessTokens = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong injectedErrorCount = new AtomicLong();
+
+    private static class AuthorizationRequest {
+
+        private final String challenge;
+        private final String redirectUri;
+        private final boolean offlineAccess;
+
+        public AuthorizationRequest(String challenge, String redirectUri, boolean offlineAccess) {
+            this.challenge = challenge;
+            this.redirectUri = redirectUri;
+            this.offlineAccess = offlineAccess;
+        }
+    }
+
+    private Auth0StandInServer(String clientId, String email, String name, String picture, long latencyMillis, double errorRate, long tokenLifetimeSeconds) throws NoSuchAlgorithmException {
+        this.clientId = clientId;
+        this.email = email;
+        this.name = name;
+        this.picture = picture;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.tokenLifetimeSeconds = tokenLifetimeSeconds;
+
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        final KeyPair keyPair = generator.generateKeyPair();
+        this.publicKey = (RSAPublicKey) keyPair.getPublic();
+        this.privateKey = (RSAPrivateKey) keyPair.getPrivate();
+
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return handle(request);
+            }
+        });
+    }
+
+    /**
+     * Starts the server on a free loopback port.
+     *
+     * @return This server
+     * @throws IOException If the server can't be started
+     */
+    public Auth0StandInServer start() throws IOException {
+        server.start();
+        LOG.info("Auth0 stand-in server listening on {}", getBaseURI());
+        return this;
+    }
+
+    public URI getBaseURI() {
+        return server.url("/").uri();
+    }
+
+    /**
+     * @return Settings that point the login flow to this server
+     */
+    public Auth0Settings getSettings() {
+        return Auth0Settings.builder()
+                .baseURI(getBaseURI())
+                .clientId(clientId)
+                .build();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrorCount.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    private MockResponse handle(final RecordedRequest request) {
+        requestCount.incrementAndGet();
+
+        final MockResponse response;
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedErrorCount.incrementAndGet();
+            response = new MockResponse().setResponseCode(HttpURLConnection.HTTP_UNAVAILABLE);
+        } else {
+            response = route(request);
+        }
+
+        if (latencyMillis > 0) {
+            response.setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return response;
+    }
+
+    private MockResponse route(final RecordedRequest request) {
+        final URI uri = request.getRequestUrl().uri();
+        final String path = uri.getPath();
+
+        if ("GET".equals(request.getMethod()) && "/authorize".equals(path)) {
+            return authorize(parseParams(uri.getRawQuery()));
+        } else if ("POST".equals(request.getMethod()) && "/oauth/token".equals(path)) {
+            return token(parseParams(request.getBody().readUtf8()));
+        } else if ("GET".equals(request.getMethod()) && "/userinfo".equals(path)) {
+            return userInfo(request.getHeader("Authorization"));
+        } else if ("GET".equals(request.getMethod()) && "/.well-known/jwks.json".equals(path)) {
+            return json(HttpURLConnection.HTTP_OK, jwks());
+        } else if ("GET".equals(request.getMethod()) && "/mobile".equals(path)) {
+            //Default WebView redirect URI, only has to load so the app can read the location:
+            return new MockResponse().setHeader("Content-Type", "text/html; charset=utf-8").setBody("<html><body></body></html>");
+        }
+
+        return new MockResponse().setResponseCode(HttpURLConnection.HTTP_NOT_FOUND);
+    }
+
+    private MockResponse authorize(final Map<String, String> params) {
+        final String redirectUri = params.get("redirect_uri");
+        if (!clientId.equals(params.get("client_id")) || StringUtils.isBlank(redirectUri) || !"S256".equals(params.get("code_challenge_method"))) {
+            return error(HttpURLConnection.HTTP_BAD_REQUEST, "invalid_request");
+        }
+
+        final String scope = params.getOrDefault("scope", "");
+        final String code = UUID.randomUUID().toString();
+        codes.put(code, new AuthorizationRequest(params.get("code_challenge"), redirectUri, List.of(scope.split(" ")).contains("offline_access")));
+
+        final String location = redirectUri
+                + (redirectUri.contains("?") ? "&" : "?") + "code=" + code
+                + "&state=" + URLEncoder.encode(params.getOrDefault("state", ""), StandardCharsets.UTF_8);
+
+        return new MockResponse()
+                .setResponseCode(HttpURLConnection.HTTP_MOVED_TEMP)
+                .setHeader("Location", location);
+    }
+
+    private MockResponse token(final Map<String, String> params) {
+        if (!clientId.equals(params.get("client_id"))) {
+            return error(HttpURLConnection.HTTP_UNAUTHORIZED, "invalid_client");
+        }
+
+        final String grantType = params.get("grant_type");
+        if ("authorization_code".equals(grantType)) {
+            final AuthorizationRequest authorization = codes.remove(StringUtils.defaultString(params.get("code")));
+            if (authorization == null
+                    || !authorization.redirectUri.equals(params.get("redirect_uri"))
+                    || params.get("code_verifier") == null
+                    || !PKCEFlowFactory.createCodeChallenge(params.get("code_verifier")).equals(authorization.challenge)) {
+                return error(HttpURLConnection.HTTP_FORBIDDEN, "invalid_grant");
+            }
+
+            String refreshToken = null;
+            if (authorization.offlineAccess) {
+                refreshToken = UUID.randomUUID().toString();
+                refreshTokens.put(refreshToken, Boolean.TRUE);
+            }
+
+            return json(HttpURLConnection.HTTP_OK, tokens(refreshToken));
+        } else if ("refresh_token".equals(grantType)) {
+            if (!refreshTokens.containsKey(StringUtils.defaultString(params.get("refresh_token")))) {
+                return error(HttpURLConnection.HTTP_FORBIDDEN, "invalid_grant");
+            }
+
+            return json(HttpURLConnection.HTTP_OK, tokens(null));
+        }
+
+        return error(HttpURLConnection.HTTP_BAD_REQUEST, "unsupported_grant_type");
+    }
+
+    private Map<String, Object> tokens(final String refreshToken) {
+        final Instant now = Instant.now();
+        final String accessToken = UUID.randomUUID().toString();
+        accessTokens.put(accessToken, Boolean.TRUE);
+
+        final String idToken = JWT.create()
+                .withKeyId(KEY_ID)
+                .withIssuer(getBaseURI().toString())
+                .withAudience(clientId)
+                .withSubject("auth0|stand-in")
+                .withIssuedAt(Date.from(now))
+                .withExpiresAt(Date.from(now.plusSeconds(tokenLifetimeSeconds)))
+                .withClaim("email", email)
+                .withClaim("name", name)
+                .withClaim("picture", picture)
+                .sign(Algorithm.RSA256(publicKey, privateKey));
+
+        final Map<String, Object> tokens = new LinkedHashMap<>();
+        tokens.put("access_token", accessToken);
+        tokens.put("id_token", idToken);
+        tokens.put("token_type", "Bearer");
+        tokens.put("expires_in", tokenLifetimeSeconds);
+        if (refreshToken != null) {
+            tokens.put("refresh_token", refreshToken);
+        }
+
+        return tokens;
+    }
+
+    private MockResponse userInfo(final String authorization) {
+        final String accessToken = StringUtils.removeStart(StringUtils.defaultString(authorization), "Bearer ");
+        if (!accessTokens.containsKey(accessToken)) {
+            return error(HttpURLConnection.HTTP_UNAUTHORIZED, "invalid_token");
+        }
+
+        final Map<String, Object> userInfo = new LinkedHashMap<>();
+        userInfo.put("name", name);
+        userInfo.put("picture", picture);
+        userInfo.put("email", email);
+
+        return json(HttpURLConnection.HTTP_OK, userInfo);
+    }
+
+    private JSONWebKeySet jwks() {
+        return new JSONWebKeySet(List.of(new JSONWebKeySet.JSONWebKey(
+                "RSA",
+                KEY_ID,
+                "sig",
+                "RS256",
+                Base64.encodeBase64URLSafeString(publicKey.getModulus().toByteArray()),
+                Base64.encodeBase64URLSafeString(publicKey.getPublicExponent().toByteArray())
+        )));
+    }
+
+    private static MockResponse json(final int status, final Object body) {
+        return new MockResponse()
+                .setResponseCode(status)
+                .setHeader("Content-Type", JSON)
+                .setBody(Utils.toJSON(body));
+    }
+
+    private static MockResponse error(final int status, final String error) {
+        return json(status, Map.of("error", error, "error_description", error));
+    }
+
+    private static Map<String, String> parseParams(final String encoded) {
+        final Map<String, String> params = new LinkedHashMap<>();
+        if (StringUtils.isBlank(encoded)) {
+            return params;
+        }
+
+        for (String pair : encoded.split("&")) {
+            final int idx = pair.indexOf('=');
+            if (idx > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8));
+            }
+        }
+
+        return params;
+    }
+
+    public static class Builder {
+
+        private String clientId = "stand-in-client";
+        private String email = "jane.doe@example.com";
+        private String name = "Jane Doe";
+        private String picture = "https://www.gravatar.com/avatar/00000000000000000000000000000000?d=identicon&s=128";
+        private long latencyMillis = 0;
+        private double errorRate = 0;
+        private long tokenLifetimeSeconds = TimeUnit.HOURS.toSeconds(10);
+
+        private Builder() {
+        }
+
+        public Builder clientId(final String value) {
+            this.clientId = value;
+            return this;
+        }
+
+        public Builder email(final String value) {
+            this.email = value;
+            return this;
+        }
+
+        public Builder name(final String value) {
+            this.name = value;
+            return this;
+        }
+
+        public Builder picture(final String value) {
+            this.picture = value;
+            return this;
+        }
+
+        /**
+         * @param value Delay added before every response
+         * @return This builder
+         */
+        public Builder latencyMillis(final long value) {
+            this.latencyMillis = value;
+            return this;
+        }
+
+        /**
+         * @param value Fraction of requests, between 0 and 1, answered with 503 Service Unavailable
+         * @return This builder
+         */
+        public Builder errorRate(final double value) {
+            this.errorRate = value;
+            return this;
+        }
+
+        public Builder tokenLifetimeSeconds(final long value) {
+            this.tokenLifetimeSeconds = value;
+            return this;
+        }
+
+        public Auth0StandInServer build() throws NoSuchAlgorithmException {
+            return new Auth0StandInServer(clientId, email, name, picture, latencyMillis, Math.max(0, Math.min(1, errorRate)), tokenLifetimeSeconds);
+        }
+    }
+
+    public static Auth0StandInServer.Builder builder() {
+        return new Auth0StandInServer.Builder();
+    }
+}
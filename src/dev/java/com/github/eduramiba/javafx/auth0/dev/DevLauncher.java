@@ -0,0 +1,26 @@
+package com.github.eduramiba.javafx.auth0.dev;
+
+import com.github.eduramiba.javafx.auth0.Launcher;
+import com.github.eduramiba.javafx.auth0.rest.login.Auth0Settings;
+
+/**
+ * Runs the app against an {@link Auth0StandInServer}, so login and REST calls work without network or a real tenant ({@code ./gradlew runDev}).
+ * <p>
+ * The stand-in is configured with the {@code stand-in-latency-millis}, {@code stand-in-error-rate} and {@code stand-in-token-lifetime-seconds} system properties.
+ * </p>
+ */
+public class DevLauncher {
+
+    public static void main(String[] args) throws Exception {
+        final Auth0StandInServer server = Auth0StandInServer.builder()
+                .latencyMillis(Long.getLong("stand-in-latency-millis", 0))
+                .errorRate(Double.parseDouble(System.getProperty("stand-in-error-rate", "0")))
+                .tokenLifetimeSeconds(Long.getLong("stand-in-token-lifetime-seconds", 10 * 60 * 60))
+                .build()
+                .start();
+
+        Auth0Settings.set(server.getSettings());
+
+        Launcher.main(args);
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+import java.io.IOException;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of turning an error response into an {@link ApiRESTException}, which is what every failed attempt pays during an outage. The body is only parsed when the friendly message is built.
+ */
+@State(Scope.Benchmark)
+public class ApiRESTExceptionBenchmark {
+
+    private static final MediaType HTML = MediaType.get("text/html; charset=utf-8");
+
+    @Param({"false", "true"})
+    private boolean stackless;
+
+    private Request request;
+    private String errorPage;
+
+    @Setup
+    public void setup() {
+        ApiRESTException.setStackless(stackless);
+
+        request = new Request.Builder()
+                .url("https://example.com/api/items/1234")
+                .build();
+
+        //Typical proxy error page, bigger than what is worth keeping:
+        final StringBuilder page = new StringBuilder("<html><body><h1>503 Service Unavailable</h1>");
+        while (page.length() < 64 * 1024) {
+            page.append("<p>The server is temporarily unable to service your request.</p>");
+        }
+        errorPage = page.append("</body></html>").toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ApiRESTException.setStackless(false);
+    }
+
+    @Benchmark
+    public ApiRESTException create() throws IOException {
+        try (Response response = errorResponse()) {
+            return ApiRESTException.from(response);
+        }
+    }
+
+    @Benchmark
+    public String createAndFormat() throws IOException {
+        try (Response response = errorResponse()) {
+            return ApiRESTException.from(response).getMessage();
+        }
+    }
+
+    private Response errorResponse() {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(503)
+                .message("Service Unavailable")
+                .body(ResponseBody.create(errorPage, HTML))
+                .build();
+    }
+}
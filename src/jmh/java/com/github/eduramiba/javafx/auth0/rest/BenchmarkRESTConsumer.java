@@ -0,0 +1,18 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Minimal consumer exposing the protected REST methods to the benchmarks.
+ */
+public class BenchmarkRESTConsumer extends AbstractRESTConsumer {
+
+    public BenchmarkRESTConsumer(URI baseURI, ClientAuthenticationCredentials apiKeyAuthorization) {
+        super(baseURI, apiKeyAuthorization);
+    }
+
+    public <T> T getJSON(String path, Class<T> clazz) throws IOException {
+        return get(baseURI.resolve(path), clazz);
+    }
+}
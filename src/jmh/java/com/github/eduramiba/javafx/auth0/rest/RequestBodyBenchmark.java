@@ -0,0 +1,62 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+import com.github.eduramiba.javafx.auth0.UserInfo;
+import com.github.eduramiba.javafx.auth0.utils.Utils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Writing a JSON request body to a discarding sink: String based body (the old post/put path) against {@link JSONRequestBody} streaming and the bodies of {@link JSONRequestBody#create(Object, long)}: sized
+ * bytes without compression, and bytes under the threshold or a gzipped stream with it.
+ */
+@State(Scope.Benchmark)
+public class RequestBodyBenchmark {
+
+    @Param({"10", "10000"})
+    public int elements;
+
+    private List<UserInfo> payload;
+
+    @Setup
+    public void setup() {
+        payload = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++) {
+            payload.add(new UserInfo("User " + i, "user" + i + "@example.com", "https://example.com/avatar/" + i + ".png", "token-" + i));
+        }
+    }
+
+    @Benchmark
+    public void stringBody() throws IOException {
+        write(RequestBody.create(Utils.toJSON(payload), AbstractRESTConsumer.JSON));
+    }
+
+    @Benchmark
+    public void streamingBody() throws IOException {
+        write(new JSONRequestBody(payload));
+    }
+
+    @Benchmark
+    public void sizedBody() throws IOException {
+        write(JSONRequestBody.create(payload, -1));
+    }
+
+    @Benchmark
+    public void compressibleBody() throws IOException {
+        write(JSONRequestBody.create(payload, 4 * 1024));
+    }
+
+    private static void write(final RequestBody body) throws IOException {
+        try (BufferedSink sink = Okio.buffer(Okio.blackhole())) {
+            body.writeTo(sink);
+        }
+    }
+}
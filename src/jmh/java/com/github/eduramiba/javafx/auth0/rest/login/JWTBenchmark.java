@@ -0,0 +1,109 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.eduramiba.javafx.auth0.utils.Utils;
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Signature verification of an RS256 id token against a JWKS served by an in-process {@link MockWebServer}. Keys are fetched once during setup, so the measured path never touches the network.
+ * <p>
+ * {@code verifyToken} measures the full verification through {@link JWKSKeyStore#verify(String)}, comparable with the decode-only baseline. {@code verifyTokenCached} measures {@link JWTUtils#verifyToken(String)},
+ * which only verifies a token once and then answers from its cache.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class JWTBenchmark {
+
+    private static final String KEY_ID = "benchmark-key";
+    private static final String ISSUER = "https://example.com/";
+    private static final String AUDIENCE = "benchmark-client";
+
+    private MockWebServer server;
+    private JWKSKeyStore keyStore;
+    private String token;
+
+    @Setup
+    public void setup() throws IOException, NoSuchAlgorithmException {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        final KeyPair keyPair = generator.generateKeyPair();
+        final RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+
+        final JSONWebKeySet jwks = new JSONWebKeySet(List.of(new JSONWebKeySet.JSONWebKey(
+                "RSA",
+                KEY_ID,
+                "sig",
+                "RS256",
+                Base64.encodeBase64URLSafeString(publicKey.getModulus().toByteArray()),
+                Base64.encodeBase64URLSafeString(publicKey.getPublicExponent().toByteArray())
+        )));
+
+        server = new MockWebServer();
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody(Utils.toJSON(jwks)));
+        server.start();
+
+        keyStore = JWKSKeyStore.builder()
+                .jwksURI(server.url("/.well-known/jwks.json").uri())
+                .issuer(ISSUER)
+                .audience(AUDIENCE)
+                .diskCacheEnabled(false)
+                .build();
+        keyStore.refreshAsync().join();
+        JWTUtils.setKeyStore(keyStore);
+
+        token = JWT.create()
+                .withKeyId(KEY_ID)
+                .withIssuer(ISSUER)
+                .withAudience(AUDIENCE)
+                .withSubject("auth0|1234567890")
+                .withIssuedAt(new Date())
+                .withExpiresAt(Date.from(Instant.now().plus(10, ChronoUnit.HOURS)))
+                .withClaim("email", "jane.doe@example.com")
+                .withClaim("name", "Jane Doe")
+                .withClaim("picture", "https://example.com/avatar/1234.png")
+                .sign(Algorithm.RSA256(publicKey, (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        JWTUtils.setKeyStore(null);
+        server.shutdown();
+    }
+
+    @Benchmark
+    public DecodedJWT verifyToken() {
+        return keyStore.verify(token);
+    }
+
+    @Benchmark
+    public Optional<DecodedJWT> verifyTokenCached() {
+        return JWTUtils.verifyToken(token);
+    }
+
+    @Benchmark
+    public DecodedJWT decodeOnly() {
+        return JWT.decode(token);
+    }
+}
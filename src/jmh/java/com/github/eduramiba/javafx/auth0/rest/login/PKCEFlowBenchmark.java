@@ -0,0 +1,21 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+public class PKCEFlowBenchmark {
+
+    @Benchmark
+    public Auth0PKCEFlow.FlowInfo createAuthorizationFlow() {
+        return Auth0PKCEFlow.createAuthorizationFlow();
+    }
+
+    @Benchmark
+    public PKCEFlowFactory.PKCECodes createCodes() {
+        return PKCEFlowFactory.create();
+    }
+
+    @Benchmark
+    public String createCodeChallenge() {
+        return PKCEFlowFactory.createCodeChallenge("dBjftJeZ4CVP-mB92K27uhbUJU1p1r_wW1gFWFOEjXk");
+    }
+}
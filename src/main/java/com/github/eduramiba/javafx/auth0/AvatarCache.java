@@ -0,0 +1,395 @@
+package com.github.eduramiba.javafx.auth0;
+
+import static com.github.eduramiba.javafx.auth0.Constants.APP_HOME_FOLDER;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.scene.image.Image;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Two tier cache of user avatars.
+ * <p>
+ * The memory tier is a small LRU of decoded {@link AvatarLoader#AVATAR_SIZE} images, so rendering an already seen avatar never decodes or touches the disk. The disk tier keeps the encoded bytes and their
+ * {@code ETag}/{@code Last-Modified} validators under the app home folder, size bounded with LRU eviction, so an avatar is shown at startup without any network request. Avatars served from disk are revalidated in
+ * the background with a conditional request, at most once per {@link #setRevalidateIntervalMillis(long) revalidate interval}, and the new version replaces the cached one if it changed.
+ * </p>
+ * <p>
+ * Failed downloads are remembered for a short time only, so a temporarily unreachable avatar host is retried later.
+ * </p>
+ */
+public class AvatarCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AvatarCache.class);
+
+    private static final String CACHE_FOLDER = "avatars";
+    private static final String IMAGE_EXTENSION = ".img";
+    private static final String META_EXTENSION = ".properties";
+
+    private static final String META_URL = "url";
+    private static final String META_ETAG = "etag";
+    private static final String META_LAST_MODIFIED = "lastModified";
+    private static final String META_CHECKED_AT = "checkedAt";
+
+    private static final int MAX_MEMORY_ENTRIES = 16;
+
+    private static volatile long maxDiskBytes = 5L * 1024 * 1024;
+    private static volatile long negativeTTLMillis = TimeUnit.MINUTES.toMillis(5);
+    private static volatile long revalidateIntervalMillis = TimeUnit.HOURS.toMillis(1);
+
+    private static final Map<String, Image> MEMORY = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    };
+
+    private static final Map<String, Long> FAILURES = new ConcurrentHashMap<>();
+    private static final Map<String, InFlight> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    //Disk reads, writes and decoding of stored avatars, one at a time and at low priority:
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "Avatar cache");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Load shared by every caller of the same URL. It is only cancelled when all of them cancel.
+     */
+    private static class InFlight {
+
+        private final CompletableFuture<Image> future = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private volatile CompletableFuture<?> download;
+
+        private void cancel() {
+            future.cancel(false);
+
+            final CompletableFuture<?> pending = download;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+    }
+
+    public static void setMaxDiskBytes(final long bytes) {
+        maxDiskBytes = bytes;
+    }
+
+    public static void setNegativeTTLMillis(final long millis) {
+        negativeTTLMillis = millis;
+    }
+
+    public static void setRevalidateIntervalMillis(final long millis) {
+        revalidateIntervalMillis = millis;
+    }
+
+    /**
+     * Returns an avatar only if it is already decoded in memory. Never blocks, safe to call from the JavaFX Application Thread.
+     *
+     * @param avatarURL Avatar URL
+     * @return Decoded avatar if present in memory
+     */
+    public static Optional<Image> getIfPresent(final String avatarURL) {
+        synchronized (MEMORY) {
+            return Optional.ofNullable(MEMORY.get(avatarURL));
+        }
+    }
+
+    /**
+     * Loads an avatar from memory, disk or network, in that order. Can be called from any thread, no work is done in the calling thread besides the memory lookup.
+     *
+     * @param avatarURL Avatar URL
+     * @return Future with the decoded avatar. It fails if the avatar can't be loaded or failed recently. Cancel it to abort the load if no other caller needs it
+     */
+    public static CompletableFuture<Image> load(final String avatarURL) {
+        final Optional<Image> cached = getIfPresent(avatarURL);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        final Long failedAt = FAILURES.get(avatarURL);
+        if (failedAt != null) {
+            if (System.currentTimeMillis() - failedAt < negativeTTLMillis) {
+                return CompletableFuture.failedFuture(new IOException("Avatar failed recently: " + avatarURL));
+            }
+            FAILURES.remove(avatarURL, failedAt);
+        }
+
+        final InFlight inFlight = IN_FLIGHT.computeIfAbsent(avatarURL, url -> {
+            final InFlight created = new InFlight();
+            created.future.whenComplete((image, ex) -> IN_FLIGHT.remove(url, created));
+            EXECUTOR.execute(() -> loadFromDiskOrNetwork(url, created));
+            return created;
+        });
+        inFlight.waiters.incrementAndGet();
+
+        final CompletableFuture<Image> result = new CompletableFuture<>();
+        inFlight.future.whenComplete((image, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(image);
+            }
+        });
+        result.whenComplete((image, ex) -> {
+            if (result.isCancelled() && inFlight.waiters.decrementAndGet() == 0) {
+                inFlight.cancel();
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Removes every avatar from memory and disk. Should be called when the logged user changes.
+     */
+    public static void clear() {
+        synchronized (MEMORY) {
+            MEMORY.clear();
+        }
+        FAILURES.clear();
+
+        EXECUTOR.execute(() -> {
+            final File[] files = getDirectory().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    deleteQuietly(file.toPath());
+                }
+            }
+        });
+    }
+
+    private static void loadFromDiskOrNetwork(final String avatarURL, final InFlight inFlight) {
+        if (inFlight.future.isDone()) {
+            return;
+        }
+
+        final Path imageFile = imageFileOf(avatarURL);
+        final Properties meta = readMeta(avatarURL);
+
+        if (meta != null && Files.isRegularFile(imageFile)) {
+            try {
+                final Image image = AvatarLoader.decode(avatarURL, Files.readAllBytes(imageFile));
+                touch(imageFile);
+                putInMemory(avatarURL, image);
+                inFlight.future.complete(image);
+
+                final long checkedAt = Long.parseLong(meta.getProperty(META_CHECKED_AT, "0"));
+                if (System.currentTimeMillis() - checkedAt >= revalidateIntervalMillis) {
+                    revalidate(avatarURL, meta);
+                }
+                return;
+            } catch (IOException | RuntimeException ex) {
+                LOG.warn("Discarding unreadable cached avatar {}", avatarURL, ex);
+                deleteQuietly(imageFile);
+                deleteQuietly(metaFileOf(avatarURL));
+            }
+        }
+
+        final CompletableFuture<AvatarLoader.Download> download = AvatarLoader.download(avatarURL, null, null);
+        inFlight.download = download;
+        if (inFlight.future.isCancelled()) {
+            download.cancel(false);
+            return;
+        }
+
+        download.whenComplete((result, ex) -> {
+            if (ex != null) {
+                if (!download.isCancelled()) {
+                    LOG.warn("Error downloading avatar {}", avatarURL, ex);
+                    FAILURES.put(avatarURL, System.currentTimeMillis());
+                }
+                inFlight.future.completeExceptionally(ex);
+                return;
+            }
+
+            try {
+                final Image image = AvatarLoader.decode(avatarURL, result.getBytes());
+                putInMemory(avatarURL, image);
+                inFlight.future.complete(image);
+
+                EXECUTOR.execute(() -> store(avatarURL, result));
+            } catch (IOException ex2) {
+                LOG.warn("Error decoding avatar {}", avatarURL, ex2);
+                FAILURES.put(avatarURL, System.currentTimeMillis());
+                inFlight.future.completeExceptionally(ex2);
+            }
+        });
+    }
+
+    private static void revalidate(final String avatarURL, final Properties meta) {
+        AvatarLoader.download(avatarURL, meta.getProperty(META_ETAG), meta.getProperty(META_LAST_MODIFIED))
+                .whenCompleteAsync((result, ex) -> {
+                    if (ex != null) {
+                        //Keep showing the stored version, it is revalidated again next time:
+                        LOG.debug("Error revalidating avatar {}", avatarURL, ex);
+                    } else if (result.isNotModified()) {
+                        meta.setProperty(META_CHECKED_AT, Long.toString(System.currentTimeMillis()));
+                        writeMeta(avatarURL, meta);
+                    } else {
+                        try {
+                            final Image image = AvatarLoader.decode(avatarURL, result.getBytes());
+                            LOG.debug("Avatar changed: {}", avatarURL);
+                            putInMemory(avatarURL, image);
+                            store(avatarURL, result);
+                        } catch (IOException ex2) {
+                            LOG.warn("Error decoding avatar {}", avatarURL, ex2);
+                        }
+                    }
+                }, EXECUTOR);
+    }
+
+    private static void putInMemory(final String avatarURL, final Image image) {
+        synchronized (MEMORY) {
+            MEMORY.put(avatarURL, image);
+        }
+    }
+
+    private static void store(final String avatarURL, final AvatarLoader.Download download) {
+        final Properties meta = new Properties();
+        meta.setProperty(META_URL, avatarURL);
+        if (download.getEtag() != null) {
+            meta.setProperty(META_ETAG, download.getEtag());
+        }
+        if (download.getLastModified() != null) {
+            meta.setProperty(META_LAST_MODIFIED, download.getLastModified());
+        }
+        meta.setProperty(META_CHECKED_AT, Long.toString(System.currentTimeMillis()));
+
+        try {
+            Files.createDirectories(getDirectory().toPath());
+            writeAtomically(imageFileOf(avatarURL), download.getBytes());
+            writeMeta(avatarURL, meta);
+        } catch (IOException ex) {
+            LOG.warn("Error storing avatar {}", avatarURL, ex);
+            return;
+        }
+
+        evictIfNeeded();
+    }
+
+    /**
+     * Deletes the least recently used avatars until the disk tier fits its maximum size. Runs in the cache thread.
+     */
+    private static void evictIfNeeded() {
+        final File[] images = getDirectory().listFiles((dir, name) -> name.endsWith(IMAGE_EXTENSION));
+        if (images == null) {
+            return;
+        }
+
+        long total = Arrays.stream(images).mapToLong(File::length).sum();
+        if (total <= maxDiskBytes) {
+            return;
+        }
+
+        Arrays.sort(images, Comparator.comparingLong(File::lastModified));
+        for (File image : images) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+
+            total -= image.length();
+            final String name = image.getName();
+            deleteQuietly(image.toPath());
+            deleteQuietly(image.toPath().resolveSibling(name.substring(0, name.length() - IMAGE_EXTENSION.length()) + META_EXTENSION));
+            LOG.debug("Evicted cached avatar {}", name);
+        }
+    }
+
+    private static Properties readMeta(final String avatarURL) {
+        final Path metaFile = metaFileOf(avatarURL);
+        if (!Files.isRegularFile(metaFile)) {
+            return null;
+        }
+
+        final Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(metaFile)) {
+            meta.load(in);
+        } catch (IOException ex) {
+            LOG.warn("Error reading cached avatar metadata {}", metaFile, ex);
+            return null;
+        }
+
+        //Guard against hash collisions:
+        return avatarURL.equals(meta.getProperty(META_URL)) ? meta : null;
+    }
+
+    private static void writeMeta(final String avatarURL, final Properties meta) {
+        final Path metaFile = metaFileOf(avatarURL);
+        final Path tmp = metaFile.resolveSibling(metaFile.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                meta.store(out, null);
+            }
+            move(tmp, metaFile);
+        } catch (IOException ex) {
+            LOG.warn("Error writing cached avatar metadata {}", metaFile, ex);
+            deleteQuietly(tmp);
+        }
+    }
+
+    private static void writeAtomically(final Path file, final byte[] bytes) throws IOException {
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, bytes);
+        move(tmp, file);
+    }
+
+    private static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void touch(final Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            LOG.debug("Error updating access time of {}", file, ex);
+        }
+    }
+
+    private static void deleteQuietly(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            LOG.debug("Error deleting {}", file, ex);
+        }
+    }
+
+    private static File getDirectory() {
+        return new File(new File(System.getProperty("user.home"), APP_HOME_FOLDER), CACHE_FOLDER);
+    }
+
+    private static Path imageFileOf(final String avatarURL) {
+        return getDirectory().toPath().resolve(DigestUtils.sha256Hex(avatarURL) + IMAGE_EXTENSION);
+    }
+
+    private static Path metaFileOf(final String avatarURL) {
+        return getDirectory().toPath().resolve(DigestUtils.sha256Hex(avatarURL) + META_EXTENSION);
+    }
+}
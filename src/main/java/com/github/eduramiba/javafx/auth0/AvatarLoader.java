@@ -0,0 +1,177 @@
+package com.github.eduramiba.javafx.auth0;
+
+import com.github.eduramiba.javafx.auth0.rest.HTTPClientRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.image.Image;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads and decodes user avatars without touching the JavaFX Application Thread. Use {@link AvatarCache} instead of calling it directly.
+ * <p>
+ * Requests run on the shared OkHttp dispatcher of {@link HTTPClientRegistry}. Cancelling a returned future cancels the HTTP call.
+ * </p>
+ */
+class AvatarLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AvatarLoader.class);
+
+    static final int AVATAR_SIZE = 128;
+
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private static volatile OkHttpClient client;
+    private static volatile int clientGeneration;
+
+    /**
+     * Result of a download. The bytes are null when the server answered {@code 304 Not Modified}.
+     */
+    static class Download {
+
+        private final byte[] bytes;
+        private final String etag;
+        private final String lastModified;
+
+        Download(byte[] bytes, String etag, String lastModified) {
+            this.bytes = bytes;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        boolean isNotModified() {
+            return bytes == null;
+        }
+    }
+
+    private static OkHttpClient getClient() {
+        //Generation is written after the client, so read it first:
+        final int generation = clientGeneration;
+        OkHttpClient result = client;
+        if (result == null || generation != HTTPClientRegistry.getGeneration()) {
+            synchronized (AvatarLoader.class) {
+                final int currentGeneration = HTTPClientRegistry.getGeneration();
+                if (client == null || clientGeneration != currentGeneration) {
+                    //Avatars come from many hosts (gravatar, social providers...), they all share the default pool:
+                    client = HTTPClientRegistry.newClientBuilder(null)
+                            .connectTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                            .callTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                            .readTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                            .writeTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                            .build();
+                    clientGeneration = currentGeneration;
+                }
+                result = client;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Starts downloading an avatar, conditionally when validators of a stored copy are given. Can be called from any thread.
+     *
+     * @param avatarURL Avatar URL
+     * @param etag ETag of the stored copy or null
+     * @param lastModified Last-Modified of the stored copy or null
+     * @return Future with the download. Cancel it to abort the HTTP call
+     */
+    static CompletableFuture<Download> download(final String avatarURL, final String etag, final String lastModified) {
+        final CompletableFuture<Download> future = new CompletableFuture<>();
+
+        final Call call;
+        try {
+            final Request.Builder request = new Request.Builder().url(avatarURL);
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                request.header("If-Modified-Since", lastModified);
+            }
+
+            call = getClient().newCall(request.build());
+        } catch (IllegalArgumentException ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException ex) {
+                future.completeExceptionally(ex);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(toDownload(avatarURL, response));
+                } catch (IOException | RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+
+        future.whenComplete((download, ex) -> {
+            if (future.isCancelled()) {
+                LOG.debug("Avatar download cancelled: {}", avatarURL);
+                call.cancel();
+            }
+        });
+
+        return future;
+    }
+
+    private static Download toDownload(final String avatarURL, final Response response) throws IOException {
+        final String etag = response.header("ETag");
+        final String lastModified = response.header("Last-Modified");
+
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return new Download(null, etag, lastModified);
+        }
+
+        final ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            throw new IOException("Unexpected response " + response.code() + " for avatar URL " + avatarURL);
+        }
+
+        return new Download(body.bytes(), etag, lastModified);
+    }
+
+    /**
+     * Decodes an avatar in the calling thread, scaled to fit {@link #AVATAR_SIZE}.
+     *
+     * @param avatarURL Avatar URL, for error messages
+     * @param bytes Encoded image
+     * @return Decoded image
+     * @throws IOException If the image can't be decoded
+     */
+    static Image decode(final String avatarURL, final byte[] bytes) throws IOException {
+        final Image image = new Image(new ByteArrayInputStream(bytes), AVATAR_SIZE, AVATAR_SIZE, true, true);
+        if (image.isError()) {
+            throw new IOException("Could not decode avatar " + avatarURL, image.getException());
+        }
+
+        return image;
+    }
+}
@@ -5,4 +5,8 @@ public class Constants {
     public static final String APP_HOME_FOLDER = ".javafxauth0login";
 
     public static final String PREF_USER_INFO = "app.user.info";
+
+    public static final String PREF_VERIFIED_TOKEN = "app.user.verified.token";
+
+    public static final String PREF_REFRESH_TOKEN = "app.user.refresh.token";
 }
@@ -1,5 +1,9 @@
 package com.github.eduramiba.javafx.auth0;
 
+import com.github.eduramiba.javafx.auth0.rest.HTTPClientRegistry;
+import com.github.eduramiba.javafx.auth0.rest.login.Auth0Login;
+import com.github.eduramiba.javafx.auth0.rest.login.JWTUtils;
+import com.github.eduramiba.javafx.auth0.rest.login.PKCEFlowFactory;
 import com.github.eduramiba.javafx.auth0.utils.I18N;
 import java.io.IOException;
 import java.util.ResourceBundle;
@@ -52,12 +56,20 @@ public class JavaFXApp extends Application {
 
         primaryStage.setOnHidden(e -> {
             controller.shutdown();
+            HTTPClientRegistry.shutdown();
             Platform.exit();
         });
 
         primaryStage.setMaximized(true);
         primaryStage.show();
         primaryStage.requestFocus();
+
+        //Ready for the first login without blocking the FX thread on crypto setup:
+        PKCEFlowFactory.prewarm();
+        Auth0Login.prewarm();
+
+        //Token checks never wait for the network, signing keys are fetched in the background:
+        JWTUtils.getKeyStore().refreshAsync();
     }
 
     public static void main(String[] args) {
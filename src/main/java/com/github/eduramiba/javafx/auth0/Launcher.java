@@ -1,8 +1,11 @@
 package com.github.eduramiba.javafx.auth0;
 
+import com.github.eduramiba.javafx.auth0.rest.metrics.HdrHistogramRESTMetrics;
+import com.github.eduramiba.javafx.auth0.rest.metrics.RESTMetricsRegistry;
 import com.github.eduramiba.javafx.auth0.utils.FXUtils;
 import java.awt.HeadlessException;
 import java.io.IOException;
+import java.time.Duration;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
@@ -14,6 +17,8 @@ public class Launcher {
 
     private static final Logger LOG = LoggerFactory.getLogger(Launcher.class);
 
+    private static final long DEFAULT_REST_METRICS_DUMP_SECONDS = 60;
+
     static {
         SLF4JBridgeHandler.removeHandlersForRootLogger();
         SLF4JBridgeHandler.install();
@@ -24,9 +29,31 @@ public class Launcher {
 
         setupSwingFallbackLookAndFeel();
 
+        setupRESTMetrics();
+
         launchApp(args);
     }
 
+    /**
+     * REST metrics are enabled with -Drest-metrics, optionally with the dump period in seconds as value (-Drest-metrics=60).
+     */
+    private static void setupRESTMetrics() {
+        final String value = System.getProperty("rest-metrics");
+        if (value == null) {
+            return;
+        }
+
+        try {
+            final long periodSeconds = value.isBlank() ? DEFAULT_REST_METRICS_DUMP_SECONDS : Long.parseLong(value.trim());
+
+            RESTMetricsRegistry.set(new HdrHistogramRESTMetrics());
+            RESTMetricsRegistry.startPeriodicDump(Duration.ofSeconds(periodSeconds));
+            LOG.info("REST metrics enabled, dumping every {} seconds", periodSeconds);
+        } catch (Throwable ex) {
+            LOG.warn("Unexpected error enabling REST metrics", ex);
+        }
+    }
+
     private static void launchApp(String[] args) throws HeadlessException {
         try {
             JavaFXApp.main(args);
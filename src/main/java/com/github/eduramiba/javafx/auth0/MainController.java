@@ -1,9 +1,13 @@
 package com.github.eduramiba.javafx.auth0;
 
 import com.github.eduramiba.javafx.auth0.utils.Utils;
+import com.github.eduramiba.javafx.auth0.rest.HTTPResponseCache;
 import com.github.eduramiba.javafx.auth0.utils.FXUtils;
 import com.github.eduramiba.javafx.auth0.rest.login.JWTUtils;
 import com.github.eduramiba.javafx.auth0.rest.login.Auth0Login;
+import com.github.eduramiba.javafx.auth0.rest.login.Auth0PKCEFlow;
+import com.github.eduramiba.javafx.auth0.rest.login.RefreshTokenStore;
+import com.github.eduramiba.javafx.auth0.rest.login.TokenRefreshScheduler;
 import com.github.eduramiba.javafx.auth0.preferences.AppPreferences;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import static com.github.eduramiba.javafx.auth0.Constants.PREF_USER_INFO;
@@ -20,26 +24,25 @@ import javafx.scene.control.Label;
 import javafx.scene.control.*;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.image.Image;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.ImageView;
+import javafx.scene.paint.Paint;
+import javafx.scene.transform.Transform;
+import javafx.stage.Screen;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okhttp3.ResponseBody;
 import org.apache.commons.lang3.StringUtils;
 import org.jooq.lambda.Unchecked;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URL;
-import java.util.List;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 import org.controlsfx.control.PopOver;
 import org.controlsfx.control.StatusBar;
 import org.controlsfx.glyphfont.FontAwesome;
@@ -70,9 +73,15 @@ public class MainController implements Initializable {
     private final MainControllerModel model;
     private ResourceBundle bundle;
 
+    private final TokenRefreshScheduler tokenRefreshScheduler;
+
     public MainController() {
         model = new MainControllerModel();
 
+        tokenRefreshScheduler = TokenRefreshScheduler.builder()
+                .listener(userInfo -> Platform.runLater(() -> model.setUserInfo(userInfo)))
+                .build();
+
         statusBarWarningIcon = new Glyph("FontAwesome", FontAwesome.Glyph.EXCLAMATION_TRIANGLE);
         statusBarWarningIcon.setFontSize(20);
         statusBarWarningIcon.setColor(Color.RED);
@@ -133,6 +142,8 @@ public class MainController implements Initializable {
         });
         
         refreshStatusBar();
+
+        buildMenu();
     }
 
     private Tooltip buildTooltip(final String text) {
@@ -151,89 +162,175 @@ public class MainController implements Initializable {
         } catch (Exception e) {
             //NOOP
         }
+
+        tokenRefreshScheduler.close();
     }
 
     public void onResize() {
         //NOOP
     }
 
-    private PopOver menuPopover = null;
+    private PopOver menuPopover;
+    private ImageView avatarView;
+    private Label userNameLabel;
+    private Label userEmailLabel;
 
-    private static final Map<String, Image> AVATAR_CACHE = new HashMap<>();
+    private String avatarURL = null;
+    private boolean avatarRendered = false;
+    private CompletableFuture<Image> avatarLoad = null;
+    private volatile CompletableFuture<Image> avatarPrefetch = null;
 
-    private void showMenu() {
-        final List<Node> nodes = new ArrayList<>();
-
-        getLoggedUserInfo().ifPresentOrElse(user -> {
-            final String avatarURL = user.getAvatarURL();
-            if (!StringUtils.isBlank(avatarURL)) {
-                try {
-                    final Rectangle avatarHolder = new Rectangle(0, 0, 128, 128);
-                    avatarHolder.setArcWidth(30.0);// Corner radius
-                    avatarHolder.setArcHeight(30.0);
-
-                    final int timeoutMillis = 2000;
-                    final OkHttpClient client = new OkHttpClient.Builder()
-                            .connectTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
-                            .callTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
-                            .readTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
-                            .writeTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
-                            .build();
-
-                    final Request request = new Request.Builder().url(avatarURL)
-                            .build();
-
-                    final Image avatarImage;
-
-                    if (AVATAR_CACHE.containsKey(avatarURL)) {
-                        avatarImage = AVATAR_CACHE.get(avatarURL);
-                    } else {
-                        try (Response response = client.newCall(request).execute()) {
-                            final ResponseBody body = response.body();
-                            if (body == null) {
-                                throw new IllegalStateException("Empty response for avatar URL " + avatarURL);
-                            }
-
-                            avatarImage = new Image(body.byteStream(), 128, 128, true, true);
-                        }
-
-                        AVATAR_CACHE.put(avatarURL, avatarImage);
-                    }
+    private static Image avatarPlaceholder = null;
 
-                    if (avatarImage != null) {
-                        final ImagePattern pattern = new ImagePattern(avatarImage);
+    /**
+     * Builds the menu once. Later user changes only update the labels and the avatar image, so opening the menu does not create nodes or apply CSS again.
+     */
+    private void buildMenu() {
+        avatarView = new ImageView();
+        avatarView.getStyleClass().add("userAvatar");
 
-                        avatarHolder.setFill(pattern);
-                        avatarHolder.setEffect(new DropShadow(5, Color.DARKGREY));// Shadow
-                        avatarHolder.getStyleClass().add("userAvatar");
-                        nodes.add(avatarHolder);
-                    }
-                } catch (Throwable ex) {
-                    AVATAR_CACHE.put(avatarURL, null);
-                }
-            }
+        userNameLabel = new Label();
+        userEmailLabel = new Label();
 
-            nodes.add(new Label(user.getName()));
-            nodes.add(new Label(user.getEmail()));
-            nodes.add(logoutButton);
-        }, () -> {
-            nodes.add(loginButton);
-        });
-
-        final VBox vbox = new VBox(nodes.toArray(new Node[0]));
+        final VBox vbox = new VBox(avatarView, userNameLabel, userEmailLabel, logoutButton, loginButton);
         vbox.getStyleClass().add("menu-popover");
 
         menuPopover = new PopOver(vbox);
         menuPopover.setDetachable(false);
-        menuPopover.show(menuIcon);
         menuPopover.setArrowLocation(PopOver.ArrowLocation.LEFT_TOP);
         menuPopover.setHideOnEscape(true);
+        menuPopover.setOnHidden(event -> cancelAvatarLoad());
+
+        model.getUserInfo().addListener((binding, oldValue, newValue) -> {
+            Platform.runLater(() -> updateMenu(model.getUserInfo().getValue()));
+        });
+
+        updateMenu(model.getUserInfo().getValue());
+    }
+
+    private void updateMenu(final UserInfo user) {
+        userNameLabel.setText(user != null ? user.getName() : null);
+        userEmailLabel.setText(user != null ? user.getEmail() : null);
+
+        final String newAvatarURL = user != null ? StringUtils.trimToNull(user.getAvatarURL()) : null;
+        if (!Objects.equals(newAvatarURL, avatarURL)) {
+            cancelAvatarLoad();
+            avatarURL = newAvatarURL;
+            avatarRendered = false;
+            avatarView.setImage(null);
+
+            if (avatarURL != null) {
+                AvatarCache.getIfPresent(avatarURL).ifPresentOrElse(this::renderAvatar, () -> {
+                    avatarView.setImage(getAvatarPlaceholder());
+                    if (menuPopover.isShowing()) {
+                        loadAvatar(avatarURL);
+                    }
+                });
+            }
+        }
+
+        if (menuPopover.isShowing()) {
+            updateMenuVisibility(getLoggedUserInfo().isPresent());
+        }
+    }
+
+    private void updateMenuVisibility(final boolean loggedIn) {
+        setShown(avatarView, loggedIn && avatarView.getImage() != null);
+        setShown(userNameLabel, loggedIn);
+        setShown(userEmailLabel, loggedIn);
+        setShown(logoutButton, loggedIn);
+        setShown(loginButton, !loggedIn);
+    }
+
+    private static void setShown(final Node node, final boolean shown) {
+        node.setVisible(shown);
+        node.setManaged(shown);
+    }
+
+    private void showMenu() {
+        if (menuPopover.isShowing()) {
+            return;
+        }
+
+        final boolean loggedIn = getLoggedUserInfo().isPresent();
+        if (loggedIn && avatarURL != null && !avatarRendered) {
+            //Usually already decoded by the session prefetch:
+            AvatarCache.getIfPresent(avatarURL).ifPresentOrElse(this::renderAvatar, () -> loadAvatar(avatarURL));
+        }
+
+        updateMenuVisibility(loggedIn);
+        menuPopover.show(menuIcon);
+    }
+
+    private void loadAvatar(final String url) {
+        cancelAvatarLoad();
+
+        final CompletableFuture<Image> load = AvatarCache.load(url);
+        avatarLoad = load;
+
+        load.whenComplete((image, ex) -> Platform.runLater(() -> {
+            if (load.isCancelled() || avatarLoad != load) {
+                return;
+            }
+            avatarLoad = null;
+
+            if (ex != null) {
+                LOG.debug("Avatar not available {}", url, ex);
+                avatarView.setImage(null);
+                setShown(avatarView, false);
+            } else {
+                renderAvatar(image);
+            }
+        }));
+    }
+
+    private void cancelAvatarLoad() {
+        if (avatarLoad != null) {
+            avatarLoad.cancel(false);
+            avatarLoad = null;
+        }
+    }
+
+    private void renderAvatar(final Image image) {
+        avatarView.setImage(renderRoundedAvatar(new ImagePattern(image), avatarView));
+        avatarRendered = true;
+    }
+
+    private Image getAvatarPlaceholder() {
+        if (avatarPlaceholder == null) {
+            avatarPlaceholder = renderRoundedAvatar(Color.LIGHTGRAY, avatarView);
+        }
+
+        return avatarPlaceholder;
+    }
+
+    /**
+     * Renders the rounded, drop shadowed avatar once into an image, at the screen scale so it stays sharp on HiDPI screens.
+     */
+    private static Image renderRoundedAvatar(final Paint fill, final ImageView view) {
+        final Rectangle avatarHolder = new Rectangle(0, 0, AvatarLoader.AVATAR_SIZE, AvatarLoader.AVATAR_SIZE);
+        avatarHolder.setArcWidth(30.0);// Corner radius
+        avatarHolder.setArcHeight(30.0);
+        avatarHolder.setFill(fill);
+        avatarHolder.setEffect(new DropShadow(5, Color.DARKGREY));// Shadow
+
+        final double scale = Screen.getPrimary().getOutputScaleX();
+        final SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        parameters.setTransform(Transform.scale(scale, scale));
+
+        final Image snapshot = avatarHolder.snapshot(parameters, null);
+        view.setFitWidth(snapshot.getWidth() / scale);
+        view.setFitHeight(snapshot.getHeight() / scale);
+
+        return snapshot;
     }
 
     private boolean hideMenu() {
+        cancelAvatarLoad();
+
         if (menuPopover != null && menuPopover.isShowing()) {
             menuPopover.hide(Duration.ZERO);
-            menuPopover = null;
 
             return true;
         }
@@ -293,15 +390,33 @@ public class MainController implements Initializable {
     private CompletableFuture<Optional<UserInfo>> ensureLoggedIn() {
         return getLoggedUserInfo()
                 .map(userInfo -> CompletableFuture.completedFuture(Optional.of(userInfo)))
-                .orElseGet(() -> doLogin());
+                .orElseGet(() -> refreshLoginOrLogin());
+    }
+
+    private CompletableFuture<Optional<UserInfo>> refreshLoginOrLogin() {
+        //Try a silent refresh before falling back to the interactive login:
+        return Auth0PKCEFlow.refreshLoginAsync()
+                .exceptionally(ex -> {
+                    LOG.warn("Error refreshing session", ex);
+                    return Optional.empty();
+                })
+                .thenCompose(userInfo -> {
+                    if (userInfo.isPresent()) {
+                        Platform.runLater(() -> model.setUserInfo(userInfo.get()));
+                        return CompletableFuture.completedFuture(userInfo);
+                    }
+
+                    return doLogin();
+                });
     }
 
     private CompletableFuture<Optional<UserInfo>> doLogin() {
-        return Auth0Login.login().thenApply(userInfo -> {
+        //The login completes on an HTTP thread, model listeners must run in the FX thread:
+        return Auth0Login.login().thenApplyAsync(userInfo -> {
             userInfo.ifPresent(model::setUserInfo);
 
             return userInfo;
-        });
+        }, Platform::runLater);
     }
 
     private void bindUserSesionToPreferences() {
@@ -314,9 +429,52 @@ public class MainController implements Initializable {
         model.getUserInfo().addListener((ObservableValue<? extends UserInfo> binding, UserInfo oldValue, UserInfo newValue) -> {
             if (newValue != null) {
                 AppPreferences.saveGlobalPreference(PREF_USER_INFO, Utils.toJSON(newValue));
+                tokenRefreshScheduler.schedule(newValue);
+                prefetchSession(newValue);
             } else {
+                cancelPrefetch();
                 AppPreferences.removeGlobalPreference(PREF_USER_INFO);
+                tokenRefreshScheduler.cancel();
+                RefreshTokenStore.clear();
+                HTTPResponseCache.clear();
+                AvatarCache.clear();
+                JWTUtils.clearTokenCache();
             }
         });
+
+        //Restored session, refreshed right away if it is already near expiry:
+        tokenRefreshScheduler.schedule(model.getUserInfo().getValue());
+        prefetchSession(model.getUserInfo().getValue());
+    }
+
+    /**
+     * Warms everything the menu needs for this user in the background, so opening it only reads memory: the token verification result and the decoded avatar.
+     */
+    private void prefetchSession(final UserInfo user) {
+        cancelPrefetch();
+        if (user == null) {
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> JWTUtils.verifyToken(user.getJwtToken()));
+
+        final String avatarURL = user.getAvatarURL();
+        if (!StringUtils.isBlank(avatarURL)) {
+            final CompletableFuture<Image> prefetch = AvatarCache.load(avatarURL);
+            prefetch.whenComplete((image, ex) -> {
+                if (ex != null && !prefetch.isCancelled()) {
+                    LOG.debug("Could not prefetch avatar {}", avatarURL, ex);
+                }
+            });
+            avatarPrefetch = prefetch;
+        }
+    }
+
+    private void cancelPrefetch() {
+        final CompletableFuture<Image> prefetch = avatarPrefetch;
+        if (prefetch != null) {
+            prefetch.cancel(false);
+            avatarPrefetch = null;
+        }
     }
 }
@@ -1,9 +1,11 @@
 package com.github.eduramiba.javafx.auth0;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.github.eduramiba.javafx.auth0.codegen.GenerateJSONCodec;
 import java.beans.ConstructorProperties;
 import java.util.Objects;
 
+@GenerateJSONCodec
 public class UserInfo {
 
     private final String name;
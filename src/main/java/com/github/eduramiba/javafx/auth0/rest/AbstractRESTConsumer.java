@@ -1,23 +1,31 @@
 package com.github.eduramiba.javafx.auth0.rest;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.eduramiba.javafx.auth0.rest.metrics.RESTMetricsRegistry;
 import com.github.eduramiba.javafx.auth0.utils.Utils;
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.time.temporal.ChronoUnit;
-import java.util.HashSet;
-import java.util.Objects;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import net.jodah.failsafe.CircuitBreakerOpenException;
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
 import net.jodah.failsafe.function.CheckedSupplier;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -25,10 +33,12 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
-import org.apache.commons.io.IOUtils;
+import okio.BufferedSource;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jooq.lambda.Seq;
 import org.jooq.lambda.Unchecked;
+import org.jooq.lambda.fi.util.function.CheckedFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +47,10 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractRESTConsumer.class);
 
     public static final MediaType JSON = MediaType.parse("application/json");
+
+    /**
+     * Flat delay retry policy, only used by consumers that set it explicitly with {@link #setRetryPolicy(RetryPolicy)}. By default consumers retry with their {@link ResiliencePolicy}.
+     */
     public static final RetryPolicy<Object> DEFAULT_RETRY_POLICY = new RetryPolicy<>()
             .withMaxRetries(3)
             .withDelay(1, 2, ChronoUnit.SECONDS)
@@ -58,6 +72,7 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
 
                 return true;
             })
+            .abortOn(CircuitBreakerOpenException.class)
             .onFailedAttempt(event -> {
                 LOG.warn("Error doing request, will retry", event.getLastFailure());
             })
@@ -67,26 +82,42 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
 
     protected final URI baseURI;
     private final OkHttpClient.Builder clientBuilder;
-    private OkHttpClient client;
+    private final AtomicReference<OkHttpClient> client = new AtomicReference<>();
+    private volatile int poolGeneration;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     private static final int DEFAULT_CONNECTION_TIMEOUT_MILLIS = 30_000;
     private static final int DEFAULT_READ_TIMEOUT_MILLIS = 30_000;
     private static final int DEFAULT_WRITE_TIMEOUT_MILLIS = 30_000;
+    private static final long DEFAULT_REQUEST_COMPRESSION_THRESHOLD_BYTES = 4 * 1024;
+
+    private static final String USER_AGENT = "JavaFX Auth0 Login Example";
 
-    private final Set<ApiRESTClientHeadersProvider> headersProviders = new HashSet<>();
+    //Copy on write, so the interceptor can check it without locking:
+    private volatile ApiRESTClientHeadersProvider[] headersProviders = new ApiRESTClientHeadersProvider[0];
 
-    private RetryPolicy<Object> retryPolicy;
+    private volatile RetryPolicy<Object> retryPolicy;
+    private volatile ResiliencePolicy resiliencePolicy = ResiliencePolicy.DEFAULT;
+
+    private final ClientAuthenticationCredentials credentials;
+    private final HeadersInterceptor headersInterceptor;
+    private volatile boolean responseCacheEnabled = false;
+    private volatile boolean requestCoalescingEnabled = true;
+    private volatile boolean requestCompressionEnabled = false;
+    private volatile long requestCompressionThresholdBytes = DEFAULT_REQUEST_COMPRESSION_THRESHOLD_BYTES;
 
     public AbstractRESTConsumer(final URI baseURI, final ClientAuthenticationCredentials apiKeyAuthorization) {
         this.baseURI = baseURI;
+        this.credentials = apiKeyAuthorization;
+        this.headersInterceptor = new HeadersInterceptor(apiKeyAuthorization);
 
-        clientBuilder = new OkHttpClient.Builder()
-                .addInterceptor(new HeadersInterceptor(apiKeyAuthorization))
+        poolGeneration = HTTPClientRegistry.getGeneration();
+        clientBuilder = HTTPClientRegistry.newClientBuilder(baseURI)
+                .addInterceptor(headersInterceptor)
+                .addNetworkInterceptor(HTTPResponseCache.privateResponseInterceptor(apiKeyAuthorization != null ? apiKeyAuthorization.getRequestHeader() : null))
                 .connectTimeout(DEFAULT_CONNECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
                 .readTimeout(DEFAULT_READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
                 .writeTimeout(DEFAULT_WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-
-        retryPolicy = DEFAULT_RETRY_POLICY;
     }
 
     @Override
@@ -99,34 +130,259 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     @Override
     public void setConnectionTimeoutMillis(int timeoutMilliseconds) {
         clientBuilder.connectTimeout(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+        client.set(null);
     }
 
     @Override
     public void setReadTimeoutMillis(int timeoutMilliseconds) {
         clientBuilder.readTimeout(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+        client.set(null);
     }
 
     @Override
     public void setWriteTimeoutMillis(int timeoutMilliseconds) {
         clientBuilder.writeTimeout(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+        client.set(null);
     }
 
     @Override
-    public void addRESTClientHeadersProvider(ApiRESTClientHeadersProvider headersProvider) {
-        if (headersProvider != null) {
-            headersProviders.add(headersProvider);
+    public synchronized void addRESTClientHeadersProvider(ApiRESTClientHeadersProvider headersProvider) {
+        if (headersProvider != null && !ArrayUtils.contains(headersProviders, headersProvider)) {
+            headersProviders = ArrayUtils.add(headersProviders, headersProvider);
         }
     }
 
+    @Override
+    public void setResponseCacheEnabled(boolean enabled) {
+        clientBuilder.cache(enabled ? HTTPResponseCache.getDiskCache() : null);
+        client.set(null);
+        responseCacheEnabled = enabled;
+    }
+
+    @Override
+    public void setRequestCoalescingEnabled(boolean enabled) {
+        requestCoalescingEnabled = enabled;
+    }
+
+    @Override
+    public void setRequestCompressionEnabled(boolean enabled) {
+        requestCompressionEnabled = enabled;
+    }
+
+    /**
+     * Sets the JSON size above which request bodies are gzipped, when compression is enabled. 4 KiB by default.
+     *
+     * @param thresholdBytes Size in bytes
+     */
+    public void setRequestCompressionThresholdBytes(long thresholdBytes) {
+        requestCompressionThresholdBytes = thresholdBytes;
+    }
+
+    public RequestCoalescer.CoalescingStats getRequestCoalescingStats() {
+        return RequestCoalescer.getStats();
+    }
+
+    public HTTPResponseCache.CacheStats getResponseCacheStats() {
+        return HTTPResponseCache.getStats();
+    }
+
+    /**
+     * Replaces the retry part of the {@link ResiliencePolicy} with a custom policy. The circuit breaker of the host still applies. Null goes back to the resilience policy retries.
+     *
+     * @param retryPolicy Retry policy or null
+     */
     @Override
     @SuppressWarnings("rawtypes")
     public void setRetryPolicy(RetryPolicy<?> retryPolicy) {
         this.retryPolicy = (RetryPolicy) retryPolicy;
     }
 
+    @Override
+    public void setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+        this.resiliencePolicy = resiliencePolicy != null ? resiliencePolicy : ResiliencePolicy.DEFAULT;
+    }
+
+    public ResiliencePolicy getResiliencePolicy() {
+        return resiliencePolicy;
+    }
+
     protected <T> T withRetry(final CheckedSupplier<T> supplier) {
-        return Failsafe.with(retryPolicy)
-                .get(supplier);
+        return withRetry(null, null, supplier);
+    }
+
+    /**
+     * Runs the supplier with the retry policy and circuit breaker of the request host, reporting retries to the REST metrics.
+     *
+     * @param method HTTP method, for metrics. Null if unknown
+     * @param uri Request URI, for metrics and to choose the host policies. Null for the base URI
+     * @param supplier Request execution
+     * @return Supplier result
+     */
+    protected <T> T withRetry(final String method, final URI uri, final CheckedSupplier<T> supplier) {
+        final ResiliencePolicy.HostPolicies policies = resiliencePolicy.forHost(uri != null ? uri : baseURI);
+        policies.onRequest();
+
+        try {
+            return Failsafe.with(retryPolicyFor(policies), policies.getCircuitBreaker())
+                    .get(context -> {
+                        if (context.getAttemptCount() > 0) {
+                            RESTMetricsRegistry.recordRetry(method, uri != null ? uri : baseURI);
+                        }
+
+                        return supplier.get();
+                    });
+        } catch (CircuitBreakerOpenException e) {
+            throw new ApiRESTCircuitOpenException(policies.getHost(), e);
+        }
+    }
+
+    private RetryPolicy<Object> retryPolicyFor(final ResiliencePolicy.HostPolicies policies) {
+        final RetryPolicy<Object> custom = retryPolicy;
+        return custom != null ? custom : policies.getRetryPolicy();
+    }
+
+    /**
+     * Asynchronous version of {@link #withRetry(CheckedSupplier)}. Each attempt enqueues a new OkHttp call and retry delays are scheduled by Failsafe, so no thread is held while waiting for the network.
+     * <p>
+     * Cancelling the returned future cancels the in-flight call and any pending retry.
+     * </p>
+     *
+     * @param requestSupplier Builds the request for each attempt
+     * @param responseHandler Parses the response, called on an OkHttp dispatcher thread. The response is closed afterwards
+     * @return Future with the parsed response
+     */
+    protected <T> CompletableFuture<T> executeAsync(final Supplier<Request> requestSupplier, final CheckedFunction<Response, T> responseHandler) {
+        final AtomicReference<Call> currentCall = new AtomicReference<>();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        final Request firstRequest;
+        try {
+            firstRequest = requestSupplier.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        final ResiliencePolicy.HostPolicies policies = resiliencePolicy.forHost(firstRequest.url().uri());
+        policies.onRequest();
+
+        final CompletableFuture<T> execution = Failsafe.with(retryPolicyFor(policies), policies.getCircuitBreaker())
+                .getStageAsync(context -> {
+                    if (result.isDone()) {
+                        return CompletableFuture.<T>failedFuture(new CancellationException());
+                    }
+
+                    final Request request = context.getAttemptCount() > 0 ? requestSupplier.get() : firstRequest;
+                    if (context.getAttemptCount() > 0) {
+                        RESTMetricsRegistry.recordRetry(request.method(), request.url().uri());
+                    }
+
+                    final Call call = getClient().newCall(request);
+                    currentCall.set(call);
+                    return enqueue(call, responseHandler);
+                });
+
+        execution.whenComplete((value, ex) -> {
+            if (ex != null) {
+                final Throwable failure = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                result.completeExceptionally(failure instanceof CircuitBreakerOpenException ? new ApiRESTCircuitOpenException(policies.getHost(), failure) : failure);
+            } else {
+                result.complete(value);
+            }
+        });
+
+        result.whenComplete((value, ex) -> {
+            if (result.isCancelled()) {
+                execution.cancel(true);
+
+                final Call call = currentCall.get();
+                if (call != null) {
+                    call.cancel();
+                }
+            }
+        });
+
+        return result;
+    }
+
+    private <T> CompletableFuture<T> enqueue(final Call call, final CheckedFunction<Response, T> responseHandler) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(new ApiRESTIOException(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(responseHandler.apply(response));
+                } catch (IOException e) {
+                    future.completeExceptionally(new ApiRESTIOException(e));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    private Request.Builder jsonRequestBuilder(final URI uri) {
+        return new Request.Builder()
+                .url(uri.toString())
+                .addHeader("Accept", JSON.toString());
+    }
+
+    /**
+     * Builds a request with the data as JSON body, sent with a {@code Content-Length}. When compression is enabled and the JSON is longer than the threshold, it's streamed gzipped instead.
+     *
+     * @param method HTTP method
+     * @param uri URI
+     * @param data Body value
+     * @return Request
+     */
+    protected Request buildJSONRequest(final String method, final URI uri, final Object data) {
+        final Request.Builder requestBuilder = jsonRequestBuilder(uri);
+
+        final RequestBody body = JSONRequestBody.create(data, requestCompressionEnabled && data != null ? requestCompressionThresholdBytes : -1);
+        if (body instanceof JSONRequestBody && ((JSONRequestBody) body).isGzip()) {
+            requestBuilder.header("Content-Encoding", "gzip");
+        }
+
+        return requestBuilder
+                .method(method, body)
+                .build();
+    }
+
+    protected <T> CompletableFuture<T> getAsync(URI uri, Class<T> clazz) {
+        final Request request = jsonRequestBuilder(uri).get().build();
+        return coalesceAsync(request, clazz.getName(), () -> executeAsync(() -> withCachedValidator(request, clazz.getName()), response -> parseGetResponse(request, response, clazz.getName(), r -> parseResponseBody(r, clazz))));
+    }
+
+    protected <T> CompletableFuture<T> getAsync(URI uri, TypeReference<T> type) {
+        final Request request = jsonRequestBuilder(uri).get().build();
+        return coalesceAsync(request, type.getType().getTypeName(), () -> executeAsync(() -> withCachedValidator(request, type.getType().getTypeName()), response -> parseGetResponse(request, response, type.getType().getTypeName(), r -> parseResponseBody(r, type))));
+    }
+
+    protected <T> CompletableFuture<T> postAsync(URI uri, Object data, Class<T> responseClass) {
+        return executeAsync(() -> buildJSONRequest("POST", uri, data), response -> parseResponseBody(response, responseClass));
+    }
+
+    protected <T> CompletableFuture<T> postAsync(URI uri, Object data, TypeReference<T> responseType) {
+        return executeAsync(() -> buildJSONRequest("POST", uri, data), response -> parseResponseBody(response, responseType));
+    }
+
+    protected <T> CompletableFuture<T> putAsync(URI uri, Object data, Class<T> responseClass) {
+        return executeAsync(() -> buildJSONRequest("PUT", uri, data), response -> parseResponseBody(response, responseClass));
+    }
+
+    protected <T> CompletableFuture<T> putAsync(URI uri, Object data, TypeReference<T> responseType) {
+        return executeAsync(() -> buildJSONRequest("PUT", uri, data), response -> parseResponseBody(response, responseType));
+    }
+
+    protected <T> CompletableFuture<T> deleteAsync(URI uri, Class<T> responseClass) {
+        return executeAsync(() -> jsonRequestBuilder(uri).delete().build(), response -> parseResponseBody(response, responseClass));
     }
 
     protected <T> T get(String uri, Class<T> clazz) throws IOException {
@@ -138,31 +394,93 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     }
 
     protected <T> T get(URI uri, Class<T> clazz) throws IOException {
-        return withRetry(() -> {
+        final Request request = jsonRequestBuilder(uri).get().build();
+        return coalesce(request, clazz.getName(), () -> withRetry("GET", uri, () -> {
             LOG.debug("HTTP GET to {}", uri);
-            final Request request = new Request.Builder()
-                    .url(uri.toString())
-                    .get()
-                    .addHeader("Accept", JSON.toString())
-                    .build();
 
-            final long t0 = System.nanoTime();
-            try (Response response = getClient().newCall(request).execute()) {
-                return parseResponseBody(response, clazz);
+            try (Response response = getClient().newCall(withCachedValidator(request, clazz.getName())).execute()) {
+                return parseGetResponse(request, response, clazz.getName(), r -> parseResponseBody(r, clazz));
             } catch (IOException e) {
                 throw new ApiRESTIOException((IOException) e);
-            } finally {
-                LOG.debug("[TIMING] HTTP GET to {}, {} ns", uri, System.nanoTime() - t0);
             }
-        });
+        }));
+    }
+
+    /**
+     * Identity of a request as it will be sent: method, URL and the authentication headers added by the credentials and header providers. Requests authenticated as different users never get the same identity.
+     *
+     * @param request Request before the headers interceptor
+     * @return Identity key
+     */
+    private String identityOf(final Request request) {
+        final Request effective = headersInterceptor.apply(request);
+
+        final StringBuilder key = new StringBuilder(effective.method()).append(' ').append(effective.url());
+        appendHeader(key, effective, "Authorization");
+        if (credentials != null && !StringUtils.isBlank(credentials.getRequestHeader()) && !"Authorization".equalsIgnoreCase(credentials.getRequestHeader().trim())) {
+            appendHeader(key, effective, credentials.getRequestHeader().trim());
+        }
+
+        return key.toString();
+    }
+
+    private static void appendHeader(final StringBuilder key, final Request request, final String name) {
+        final String value = request.header(name);
+        if (value != null) {
+            key.append(' ').append(name).append('=').append(value);
+        }
+    }
+
+    private <T> T coalesce(final Request request, final String typeName, final CheckedSupplier<T> supplier) {
+        if (!requestCoalescingEnabled) {
+            return Unchecked.supplier(supplier::get).get();
+        }
+
+        return RequestCoalescer.execute(identityOf(request) + " " + typeName, supplier);
+    }
+
+    private <T> CompletableFuture<T> coalesceAsync(final Request request, final String typeName, final Supplier<CompletableFuture<T>> supplier) {
+        if (!requestCoalescingEnabled) {
+            return supplier.get();
+        }
+
+        return RequestCoalescer.executeAsync(identityOf(request) + " " + typeName, supplier);
+    }
+
+    private <T> T parseGetResponse(final Request request, final Response response, final String typeName, final CheckedFunction<Response, T> parser) throws Throwable {
+        if (!responseCacheEnabled) {
+            return parser.apply(response);
+        }
+
+        //Parsed objects are kept per effective authentication headers so they are never shared between users:
+        return HTTPResponseCache.parse(response, memoryKeyOf(request, typeName), parser);
+    }
+
+    /**
+     * Adds the validator of a kept private response, so an unchanged one is answered with 304 and its parsed object reused. See {@link HTTPResponseCache#withValidator(Request, String)}.
+     *
+     * @param request Request without conditional headers
+     * @param typeName Parsed type
+     * @return Request to send
+     */
+    private Request withCachedValidator(final Request request, final String typeName) {
+        if (!responseCacheEnabled) {
+            return request;
+        }
+
+        return HTTPResponseCache.withValidator(request, memoryKeyOf(request, typeName));
+    }
+
+    private String memoryKeyOf(final Request request, final String typeName) {
+        return identityOf(request) + " " + typeName;
     }
 
     protected <T> T parseResponseBody(final Response response, final Class<T> clazz) throws IOException {
-        return parseResponseBody(response, Unchecked.function(in -> Utils.parseJSON(in, clazz)));
+        return parseResponseBody(response, Unchecked.function(in -> Utils.parseStrictJSON(in, clazz)));
     }
 
     protected <T> T parseResponseBody(final Response response, final TypeReference<T> type) throws IOException {
-        return parseResponseBody(response, Unchecked.function(in -> Utils.parseJSON(in, type)));
+        return parseResponseBody(response, Unchecked.function(in -> Utils.parseStrictJSON(in, type)));
     }
 
     protected <T> T parseResponseBody(final Response response, final Function<InputStream, T> parseFunction) throws IOException {
@@ -170,44 +488,141 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
             return null;
         }
 
+        return getJSONResponseSource(response)
+                .map(source -> parseFunction.apply(source.inputStream()))
+                .orElse(null);
+    }
+
+    /**
+     * Validates the response status and content type and returns the Okio source of the body, so Jackson can read straight from the network buffer.
+     *
+     * @param response Response
+     * @return Source of the JSON body, empty when there is no content to parse
+     * @throws IOException If the body can't be read
+     */
+    protected Optional<BufferedSource> getJSONResponseSource(final Response response) throws IOException {
         final String requestMethod = response.request().method();
         final boolean isOperation = Seq.of("GET", "HEAD", "OPTIONS")
                 .noneMatch(requestMethod::equalsIgnoreCase);
 
         final int status = response.code();
         if (status == HttpURLConnection.HTTP_NO_CONTENT) {
-            return null;
+            return Optional.empty();
         }
 
         if (status == HttpURLConnection.HTTP_NOT_FOUND) {
             if (isOperation) {
                 throw ApiRESTException.from(response);
             } else {
-                return null;
+                return Optional.empty();
             }
         }
 
         validateResponse(response);
 
-        final ResponseBody body = response.body();
-
-        if (body == null) {
-            return null;
-        }
-
-        final Optional<BufferedInputStream> inputStream = getResponseDataInputStream(response);
-
-        return inputStream.map(Unchecked.function(in -> {
-            final MediaType contentType = body.contentType();
+        final Optional<BufferedSource> source = getResponseDataSource(response);
+        if (source.isPresent()) {
+            final MediaType contentType = response.body().contentType();
             if (contentType == null || !contentType.subtype().toLowerCase().contains("json")) {
                 throw new IllegalStateException(
                         "Expected JSON response media type but got " + contentType + ". Content:\n"
-                        + IOUtils.toString(in, StandardCharsets.UTF_8)
+                        + source.get().readUtf8()
                 );
             }
+        }
 
-            return parseFunction.apply(in);
-        })).orElse(null);
+        return source;
+    }
+
+    /**
+     * Executes a GET request whose response is a top-level JSON array and lazily parses its elements while the returned {@link Seq} is consumed. The array is never fully materialized in memory.
+     * <p>
+     * The response stays open until the sequence is exhausted or closed, so callers should consume it in a try-with-resources block.
+     * </p>
+     *
+     * @param uri URI
+     * @param elementClass Type of the array elements
+     * @return Lazy sequence of elements
+     * @throws IOException If the request fails
+     */
+    protected <T> Seq<T> getSeq(URI uri, Class<T> elementClass) throws IOException {
+        return getSeq(uri, in -> Utils.parseJSONValues(in, elementClass));
+    }
+
+    protected <T> Seq<T> getSeq(URI uri, TypeReference<T> elementType) throws IOException {
+        return getSeq(uri, in -> Utils.parseJSONValues(in, elementType));
+    }
+
+    private <T> Seq<T> getSeq(URI uri, CheckedFunction<InputStream, Iterator<T>> iteratorFunction) throws IOException {
+        final Response response = withRetry("GET", uri, () -> {
+            LOG.debug("HTTP GET (streaming) to {}", uri);
+            final Request request = jsonRequestBuilder(uri).get().build();
+
+            final Response r;
+            try {
+                r = getClient().newCall(request).execute();
+            } catch (IOException e) {
+                throw new ApiRESTIOException(e);
+            }
+
+            try {
+                getJSONResponseSource(r);
+                return r;
+            } catch (Throwable e) {
+                r.close();
+                throw e;
+            }
+        });
+
+        final Optional<BufferedSource> source = getResponseDataSource(response);
+        if (source.isEmpty()) {
+            response.close();
+            return Seq.empty();
+        }
+
+        final Iterator<T> elements;
+        try {
+            elements = iteratorFunction.apply(source.get().inputStream());
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        } catch (Throwable e) {
+            response.close();
+            throw new IOException(e);
+        }
+
+        return Seq.seq(new ClosingIterator<>(elements, response)).onClose(response::close);
+    }
+
+    private static class ClosingIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> delegate;
+        private final Response response;
+
+        public ClosingIterator(Iterator<T> delegate, Response response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                final boolean hasNext = delegate.hasNext();
+                if (!hasNext) {
+                    response.close();
+                }
+
+                return hasNext;
+            } catch (RuntimeException e) {
+                response.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public T next() {
+            return delegate.next();
+        }
     }
 
     protected void validateResponse(final Response response) throws ApiRESTException, IOException {
@@ -224,23 +639,16 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     }
 
     protected <T> T get(URI uri, TypeReference<T> type) throws IOException {
-        return withRetry(() -> {
+        final Request request = jsonRequestBuilder(uri).get().build();
+        return coalesce(request, type.getType().getTypeName(), () -> withRetry("GET", uri, () -> {
             LOG.debug("HTTP GET to {}", uri);
-            final Request request = new Request.Builder()
-                    .url(uri.toString())
-                    .get()
-                    .addHeader("Accept", JSON.toString())
-                    .build();
 
-            final long t0 = System.nanoTime();
-            try (Response response = getClient().newCall(request).execute()) {
-                return parseResponseBody(response, type);
+            try (Response response = getClient().newCall(withCachedValidator(request, type.getType().getTypeName())).execute()) {
+                return parseGetResponse(request, response, type.getType().getTypeName(), r -> parseResponseBody(r, type));
             } catch (IOException e) {
                 throw new ApiRESTIOException((IOException) e);
-            } finally {
-                LOG.debug("[TIMING] HTTP GET to {}, {} ns", uri, System.nanoTime() - t0);
             }
-        });
+        }));
     }
 
     protected Response post(String uri, Object data) throws IOException {
@@ -248,18 +656,13 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     }
 
     protected Response post(URI uri, Object data) throws IOException {
-        return withRetry(() -> {
-            LOG.debug("HTTP POST: {} = {}", uri, Utils.toJSON(data));
+        return withRetry("POST", uri, () -> {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("HTTP POST: {} = {}", uri, Utils.toJSON(data));
+            }
 
-            final Request request = new Request.Builder()
-                    .url(uri.toString())
-                    .post(
-                            RequestBody.create(Utils.toJSON(data), JSON)
-                    )
-                    .addHeader("Accept", JSON.toString())
-                    .build();
+            final Request request = buildJSONRequest("POST", uri, data);
 
-            final long t0 = System.nanoTime();
             try {
                 return getClient().newCall(request).execute();
             } catch (Exception e) {
@@ -270,8 +673,6 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
                 } else {
                     throw e;
                 }
-            } finally {
-                LOG.debug("[TIMING] HTTP POST to {}, {} ns", uri, System.nanoTime() - t0);
             }
         });
     }
@@ -285,18 +686,13 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     }
 
     protected <T> T post(URI uri, Object data, TypeReference<T> responseType) throws IOException {
-        return withRetry(() -> {
-            LOG.debug("HTTP POST: {} = {}", uri, Utils.toJSON(data));
+        return withRetry("POST", uri, () -> {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("HTTP POST: {} = {}", uri, Utils.toJSON(data));
+            }
 
-            final Request request = new Request.Builder()
-                    .url(uri.toString())
-                    .post(
-                            RequestBody.create(Utils.toJSON(data), JSON)
-                    )
-                    .addHeader("Accept", JSON.toString())
-                    .build();
+            final Request request = buildJSONRequest("POST", uri, data);
 
-            final long t0 = System.nanoTime();
             try (Response response = getClient().newCall(request).execute()) {
                 LOG.debug("Response = {}", response);
 
@@ -309,25 +705,18 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
                 } else {
                     throw e;
                 }
-            } finally {
-                LOG.debug("[TIMING] HTTP POST to {}, {} ns", uri, System.nanoTime() - t0);
             }
         });
     }
 
     protected <T> T post(URI uri, Object data, Class<T> responseClass) throws IOException {
-        return withRetry(() -> {
-            LOG.debug("HTTP POST: {} = {}", uri, Utils.toJSON(data));
+        return withRetry("POST", uri, () -> {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("HTTP POST: {} = {}", uri, Utils.toJSON(data));
+            }
 
-            final Request request = new Request.Builder()
-                    .url(uri.toString())
-                    .post(
-                            RequestBody.create(Utils.toJSON(data), JSON)
-                    )
-                    .addHeader("Accept", JSON.toString())
-                    .build();
+            final Request request = buildJSONRequest("POST", uri, data);
 
-            final long t0 = System.nanoTime();
             try (Response response = getClient().newCall(request).execute()) {
                 LOG.debug("Response = {}", response);
 
@@ -340,8 +729,6 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
                 } else {
                     throw e;
                 }
-            } finally {
-                LOG.debug("[TIMING] HTTP POST to {}, {} ns", uri, System.nanoTime() - t0);
             }
         });
     }
@@ -359,18 +746,12 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     }
 
     protected Response put(URI uri, Object data) throws IOException {
-        return withRetry(() -> {
-            LOG.debug("HTTP PUT: {} = {}", uri, Utils.toJSON(data));
-
-            final Request request = new Request.Builder()
-                    .url(uri.toString())
-                    .put(
-                            RequestBody.create(Utils.toJSON(data), JSON)
-                    )
-                    .addHeader("Accept", JSON.toString())
-                    .build();
+        return withRetry("PUT", uri, () -> {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("HTTP PUT: {} = {}", uri, Utils.toJSON(data));
+            }
 
-            final long t0 = System.nanoTime();
+            final Request request = buildJSONRequest("PUT", uri, data);
 
             try {
                 return getClient().newCall(request).execute();
@@ -382,8 +763,6 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
                 } else {
                     throw e;
                 }
-            } finally {
-                LOG.debug("[TIMING] HTTP POST to {}, {} ns", uri, System.nanoTime() - t0);
             }
         });
     }
@@ -397,18 +776,13 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     }
 
     protected <T> T put(URI uri, Object data, TypeReference<T> responseType) throws IOException {
-        return withRetry(() -> {
-            LOG.debug("HTTP PUT: {} = {}", uri, Utils.toJSON(data));
+        return withRetry("PUT", uri, () -> {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("HTTP PUT: {} = {}", uri, Utils.toJSON(data));
+            }
 
-            final Request request = new Request.Builder()
-                    .url(uri.toString())
-                    .put(
-                            RequestBody.create(Utils.toJSON(data), JSON)
-                    )
-                    .addHeader("Accept", JSON.toString())
-                    .build();
+            final Request request = buildJSONRequest("PUT", uri, data);
 
-            final long t0 = System.nanoTime();
             try (Response response = getClient().newCall(request).execute()) {
                 LOG.debug("Response = {}", response);
 
@@ -421,25 +795,18 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
                 } else {
                     throw e;
                 }
-            } finally {
-                LOG.debug("[TIMING] HTTP PUT to {}, {} ns", uri, System.nanoTime() - t0);
             }
         });
     }
 
     protected <T> T put(URI uri, Object data, Class<T> responseClass) throws IOException {
-        return withRetry(() -> {
-            LOG.debug("HTTP PUT: {} = {}", uri, Utils.toJSON(data));
+        return withRetry("PUT", uri, () -> {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("HTTP PUT: {} = {}", uri, Utils.toJSON(data));
+            }
 
-            final Request request = new Request.Builder()
-                    .url(uri.toString())
-                    .put(
-                            RequestBody.create(Utils.toJSON(data), JSON)
-                    )
-                    .addHeader("Accept", JSON.toString())
-                    .build();
+            final Request request = buildJSONRequest("PUT", uri, data);
 
-            final long t0 = System.nanoTime();
             try (Response response = getClient().newCall(request).execute()) {
                 LOG.debug("Response = {}", response);
 
@@ -452,8 +819,6 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
                 } else {
                     throw e;
                 }
-            } finally {
-                LOG.debug("[TIMING] HTTP PUT to {}, {} ns", uri, System.nanoTime() - t0);
             }
         });
     }
@@ -463,7 +828,7 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
     }
 
     protected Response delete(URI uri) throws IOException {
-        return withRetry(() -> {
+        return withRetry("DELETE", uri, () -> {
             LOG.debug("HTTP DELETE to {}", uri);
             final Request request = new Request.Builder()
                     .url(uri.toString())
@@ -471,19 +836,16 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
                     .addHeader("Accept", JSON.toString())
                     .build();
 
-            final long t0 = System.nanoTime();
             try {
                 return getClient().newCall(request).execute();
             } catch (IOException e) {
                 throw new ApiRESTIOException((IOException) e);
-            } finally {
-                LOG.debug("[TIMING] HTTP DELETE to {}, {} ns", uri, System.nanoTime() - t0);
             }
         });
     }
 
     protected <T> T delete(URI uri, Class<T> responseClass) throws IOException {
-        return withRetry(() -> {
+        return withRetry("DELETE", uri, () -> {
             LOG.debug("HTTP DELETE to {}", uri);
             final Request request = new Request.Builder()
                     .url(uri.toString())
@@ -491,54 +853,86 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
                     .addHeader("Accept", JSON.toString())
                     .build();
 
-            final long t0 = System.nanoTime();
             try (Response response = getClient().newCall(request).execute()) {
                 return parseResponseBody(response, responseClass);
             } catch (IOException e) {
                 throw new ApiRESTIOException((IOException) e);
-            } finally {
-                LOG.debug("[TIMING] HTTP DELETE to {}, {} ns", uri, System.nanoTime() - t0);
             }
         });
     }
 
-    protected synchronized OkHttpClient getClient() {
-        if (client == null) {
-            client = clientBuilder.build();
+    protected OkHttpClient getClient() {
+        if (poolGeneration != HTTPClientRegistry.getGeneration()) {
+            rebindSharedPool();
+        }
+
+        final OkHttpClient current = client.get();
+        if (current != null) {
+            return current;
+        }
+
+        //Building is cheap since the pool and dispatcher are shared, so losing the race just discards a builder result:
+        final OkHttpClient built = clientBuilder.build();
+        return client.compareAndSet(null, built) ? built : getClient();
+    }
+
+    private synchronized void rebindSharedPool() {
+        final int generation = HTTPClientRegistry.getGeneration();
+        if (poolGeneration != generation) {
+            //The registry was shut down, the builder still points to the stopped dispatcher:
+            HTTPClientRegistry.rebindClientBuilder(baseURI, clientBuilder);
+            client.set(null);
+            poolGeneration = generation;
         }
+    }
 
-        return client;
+    /**
+     * Returns the stats of the shared connection pool used by this consumer.
+     *
+     * @return Pool stats
+     */
+    public HTTPClientRegistry.PoolStats getPoolStats() {
+        return HTTPClientRegistry.getStats(baseURI);
     }
 
     @Override
-    public synchronized void close() {
-        client = null;
+    public void close() {
+        client.set(null);
+        if (closed.compareAndSet(false, true)) {
+            HTTPClientRegistry.release(baseURI);
+        }
     }
 
-    public static Optional<BufferedInputStream> getResponseDataInputStream(Response response) throws IOException {
+    /**
+     * Returns the body source if the response has any content. Unlike checking {@code available()}, {@link BufferedSource#exhausted()} waits for the first byte, so chunked or slow responses are not mistaken for empty ones.
+     *
+     * @param response Response
+     * @return Body source, empty if there is no body or it has no content
+     * @throws IOException If the body can't be read
+     */
+    public static Optional<BufferedSource> getResponseDataSource(Response response) throws IOException {
         final ResponseBody body = response.body();
 
         if (body == null) {
             return Optional.empty();
         }
 
-        final BufferedInputStream inputStream = new BufferedInputStream(body.byteStream());
-        inputStream.mark(1);
-        if (inputStream.read() == -1) {
+        final BufferedSource source = body.source();
+        if (source.exhausted()) {
             return Optional.empty();
         }
-        inputStream.reset();
 
-        if (inputStream.available() > 0) {
-            return Optional.of(inputStream);
-        }
+        return Optional.of(source);
+    }
 
-        return Optional.empty();
+    public static Optional<InputStream> getResponseDataInputStream(Response response) throws IOException {
+        return getResponseDataSource(response).map(BufferedSource::inputStream);
     }
 
-    private class HeadersInterceptor implements Interceptor {
+    class HeadersInterceptor implements Interceptor {
 
         private final ClientAuthenticationCredentials credentials;
+        private volatile HeadersSnapshot snapshot;
 
         public HeadersInterceptor(ClientAuthenticationCredentials apiKeyAuthorization) {
             this.credentials = apiKeyAuthorization;
@@ -546,30 +940,152 @@ public abstract class AbstractRESTConsumer implements ApiRESTConsumer {
 
         @Override
         public Response intercept(Chain chain) throws IOException {
-            final Request.Builder newRequestBuilder = chain.request().newBuilder();
-
-            headersProviders.stream()
-                    .map(p -> p.getExtraHeaders())
-                    .filter(Objects::nonNull)
-                    .flatMap(p -> p.entrySet().stream())
-                    .filter(entry -> entry.getKey() != null && entry.getValue() != null)
-                    .forEach(entry -> {
-                        newRequestBuilder.header(entry.getKey(), entry.getValue());
-                    });
+            return chain.proceed(apply(chain.request()));
+        }
+
+        private HeadersSnapshot currentSnapshot() {
+            final ApiRESTClientHeadersProvider[] providers = headersProviders;
+
+            HeadersSnapshot current = snapshot;
+            if (current == null || current.isStale(providers)) {
+                current = new HeadersSnapshot(providers, credentials);
+                snapshot = current;
+            }
+
+            return current;
+        }
 
-            newRequestBuilder.header("User-Agent", "JavaFX Auth0 Login Example");
+        /**
+         * @param request Request as built by the consumer
+         * @return Request headers with the static provider, user agent and credentials headers set over them. The same instance is returned while requests carry equal headers
+         */
+        Headers mergedHeaders(final Request request) {
+            return currentSnapshot().mergeWith(request.headers());
+        }
+
+        /**
+         * @param request Request as built by the consumer
+         * @return Request with the provider, user agent and credentials headers
+         */
+        Request apply(final Request request) {
+            final HeadersSnapshot current = currentSnapshot();
+
+            final Headers merged = current.mergeWith(request.headers());
+            if (current.dynamicProviders.length == 0) {
+                //Fast path, the merged headers are reused while requests carry the same headers (usually just Accept), OkHttp only copies them into the new request:
+                return request.newBuilder().headers(merged).build();
+            }
+
+            final Headers.Builder headersBuilder = merged.newBuilder();
+            for (ApiRESTClientHeadersProvider provider : current.dynamicProviders) {
+                setHeaders(headersBuilder, provider.getDynamicHeaders(request));
+            }
+
+            return request.newBuilder().headers(headersBuilder.build()).build();
+        }
+    }
 
-            LOG.debug("Api key authorization settings: {}", credentials);
+    /**
+     * Immutable headers of the providers at given versions, plus user agent and credentials.
+     */
+    private static class HeadersSnapshot {
+
+        private final ApiRESTClientHeadersProvider[] providers;
+        private final long[] versions;
+        private final ApiRESTClientHeadersProvider[] dynamicProviders;
+        private final Headers headers;
+
+        //Last request headers merged with the snapshot, replaced when requests with other headers come:
+        private volatile MergedHeaders lastMerged;
+
+        public HeadersSnapshot(ApiRESTClientHeadersProvider[] providers, ClientAuthenticationCredentials credentials) {
+            this.providers = providers;
+            this.versions = new long[providers.length];
+            this.dynamicProviders = Seq.of(providers)
+                    .filter(ApiRESTClientHeadersProvider::hasDynamicHeaders)
+                    .toArray(ApiRESTClientHeadersProvider[]::new);
+
+            final Headers.Builder headersBuilder = new Headers.Builder();
+            for (int i = 0; i < providers.length; i++) {
+                //Read the version before the headers, so a concurrent change makes the snapshot stale instead of being missed:
+                versions[i] = providers[i].getHeadersVersion();
+                setHeaders(headersBuilder, providers[i].getExtraHeaders());
+            }
+
+            headersBuilder.set("User-Agent", USER_AGENT);
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Api key authorization settings: {}", credentials);
+            }
             if (credentials != null
                     && !StringUtils.isBlank(credentials.getRequestHeader())
                     && !StringUtils.isBlank(credentials.getSecret())) {
-                LOG.debug("Using credentials: {}", credentials);
+                headersBuilder.set(credentials.getRequestHeader().trim(), credentials.getSecret().trim());
+            }
+
+            this.headers = headersBuilder.build();
+        }
+
+        /**
+         * @param requestHeaders Headers set by the request builder
+         * @return Request headers with the snapshot headers set over them
+         */
+        public Headers mergeWith(final Headers requestHeaders) {
+            if (requestHeaders.size() == 0) {
+                return headers;
+            }
+
+            final MergedHeaders last = lastMerged;
+            if (last != null && last.requestHeaders.equals(requestHeaders)) {
+                return last.merged;
+            }
+
+            final Headers.Builder headersBuilder = requestHeaders.newBuilder();
+            for (int i = 0; i < headers.size(); i++) {
+                headersBuilder.set(headers.name(i), headers.value(i));
+            }
+
+            final Headers merged = headersBuilder.build();
+            lastMerged = new MergedHeaders(requestHeaders, merged);
+            return merged;
+        }
 
-                newRequestBuilder.header(credentials.getRequestHeader().trim(), credentials.getSecret().trim());
+        public boolean isStale(final ApiRESTClientHeadersProvider[] currentProviders) {
+            if (currentProviders != providers) {
+                return true;
+            }
+
+            for (int i = 0; i < providers.length; i++) {
+                if (providers[i].getHeadersVersion() != versions[i]) {
+                    return true;
+                }
             }
 
-            return chain.proceed(newRequestBuilder.build());
+            return false;
         }
     }
 
+    private static class MergedHeaders {
+
+        private final Headers requestHeaders;
+        private final Headers merged;
+
+        public MergedHeaders(Headers requestHeaders, Headers merged) {
+            this.requestHeaders = requestHeaders;
+            this.merged = merged;
+        }
+    }
+
+    private static void setHeaders(final Headers.Builder headersBuilder, final Map<String, String> extraHeaders) {
+        if (extraHeaders == null) {
+            return;
+        }
+
+        extraHeaders.forEach((name, value) -> {
+            if (name != null && value != null) {
+                headersBuilder.set(name, value);
+            }
+        });
+    }
+
 }
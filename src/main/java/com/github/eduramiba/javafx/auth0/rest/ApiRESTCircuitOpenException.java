@@ -0,0 +1,29 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+/**
+ * Thrown without contacting the server while the circuit breaker of its host is open after repeated failures.
+ */
+public class ApiRESTCircuitOpenException extends UserFriendlyIOException {
+
+    private final transient String host;
+
+    public ApiRESTCircuitOpenException(String host, Throwable cause) {
+        super("Circuit open for " + host, cause);
+        this.host = host;
+    }
+
+    @Override
+    public String getFriendlyMessage() {
+        return "The Application server is not responding correctly at the moment, so the request was not sent. Please try again in a few moments.";
+    }
+
+    @Override
+    public String getUniqueCode() {
+        return "REST-API-CIRCUIT-OPEN";
+    }
+
+    @Override
+    public Object getSource() {
+        return host;
+    }
+}
@@ -1,7 +1,42 @@
 package com.github.eduramiba.javafx.auth0.rest;
 
 import java.util.Map;
+import okhttp3.Request;
 
+/**
+ * Extra headers added to every request of a consumer.
+ * <p>
+ * Consumers keep a precomputed snapshot of the headers of all their providers and only call {@link #getExtraHeaders()} again when {@link #getHeadersVersion()} changes. Headers that must be different for each request go
+ * through {@link #getDynamicHeaders(Request)} instead.
+ * </p>
+ */
 public interface ApiRESTClientHeadersProvider {
+
     Map<String, String> getExtraHeaders();
+
+    /**
+     * Must change every time {@link #getExtraHeaders()} would return different headers. Providers whose headers never change can keep the default.
+     *
+     * @return Version of the extra headers
+     */
+    default long getHeadersVersion() {
+        return 0;
+    }
+
+    /**
+     * @return True if {@link #getDynamicHeaders(Request)} has to be called for each request
+     */
+    default boolean hasDynamicHeaders() {
+        return false;
+    }
+
+    /**
+     * Headers computed for each request, applied after the snapshot of extra headers. Only called when {@link #hasDynamicHeaders()} is true, so keep it cheap.
+     *
+     * @param request Request being sent
+     * @return Headers or null
+     */
+    default Map<String, String> getDynamicHeaders(Request request) {
+        return null;
+    }
 }
@@ -31,10 +31,46 @@ public interface ApiRESTConsumer extends AutoCloseable {
         //NOOP
     }
 
+    /**
+     * Enables the shared HTTP response cache for GET requests of this consumer. Disabled by default.
+     *
+     * @param enabled True to enable
+     */
+    default void setResponseCacheEnabled(boolean enabled) {
+        //NOOP
+    }
+
+    /**
+     * Concurrent identical GET requests of this consumer share a single network call by default. Disable it when every caller needs its own response.
+     *
+     * @param enabled True to coalesce identical in-flight GET requests
+     */
+    default void setRequestCoalescingEnabled(boolean enabled) {
+        //NOOP
+    }
+
+    /**
+     * Gzips JSON request bodies above a size threshold. Disabled by default, only enable it for servers that accept {@code Content-Encoding: gzip} requests.
+     *
+     * @param enabled True to compress large request bodies
+     */
+    default void setRequestCompressionEnabled(boolean enabled) {
+        //NOOP
+    }
+
     default void setRetryPolicy(RetryPolicy<?> retryPolicy) {
         //NOOP
     }
 
+    /**
+     * Sets the backoff, retry budget and circuit breaker settings of this consumer. Consumers sharing a policy instance share its per-host state. {@link ResiliencePolicy#DEFAULT} is used when not set.
+     *
+     * @param resiliencePolicy Resilience policy
+     */
+    default void setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+        //NOOP
+    }
+
     @Override
     default void close() {
         //NOOP
@@ -2,20 +2,22 @@ package com.github.eduramiba.javafx.auth0.rest;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.eduramiba.javafx.auth0.codegen.GenerateJSONCodec;
 import com.github.eduramiba.javafx.auth0.utils.Utils;
-import static com.github.eduramiba.javafx.auth0.rest.AbstractRESTConsumer.getResponseDataInputStream;
-import java.io.BufferedInputStream;
+import static com.github.eduramiba.javafx.auth0.rest.AbstractRESTConsumer.getResponseDataSource;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import okhttp3.Response;
-import org.apache.commons.io.IOUtils;
+import okio.BufferedSource;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,22 +26,85 @@ public class ApiRESTException extends UserFriendlyIOException {
 
     private static final Logger LOG = LoggerFactory.getLogger(ApiRESTException.class);
 
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int DEFAULT_MAX_ERROR_BODY_BYTES = 16 * 1024;
+
+    public static final String STACKLESS_PROPERTY = "rest-stackless-errors";
+
+    private static volatile int maxErrorBodyBytes = DEFAULT_MAX_ERROR_BODY_BYTES;
+    private static volatile boolean stackless = Boolean.getBoolean(STACKLESS_PROPERTY);
+
     private final transient String requestUri;
     private final transient String requestMethod;
-    private final transient String responseBody;
-    private final transient AppServerErrorMessagesResponse errorResponse;
     private final transient int status;
+    private final transient Duration retryAfter;
+
+    //Raw body of the response, decoded and parsed only when needed:
+    private final transient byte[] responseBodyBytes;
+    private final transient boolean responseBodyTruncated;
+
+    private transient String responseBody;
+    private transient boolean responseBodyDecoded;
+    private transient AppServerErrorMessagesResponse errorResponse;
+    private transient boolean errorResponseParsed;
 
     public ApiRESTException(String requestUri, String requestMethod, String responseBody, AppServerErrorMessagesResponse errorResponse, int status) {
+        this(requestUri, requestMethod, responseBody, errorResponse, status, null);
+    }
+
+    public ApiRESTException(String requestUri, String requestMethod, String responseBody, AppServerErrorMessagesResponse errorResponse, int status, Duration retryAfter) {
         this.requestUri = requestUri;
         this.requestMethod = requestMethod;
+        this.status = status;
+        this.retryAfter = retryAfter;
+        this.responseBodyBytes = null;
+        this.responseBodyTruncated = false;
         this.responseBody = StringUtils.stripToNull(responseBody);
+        this.responseBodyDecoded = true;
         this.errorResponse = errorResponse;
+        this.errorResponseParsed = true;
+    }
+
+    private ApiRESTException(String requestUri, String requestMethod, byte[] responseBodyBytes, boolean responseBodyTruncated, int status, Duration retryAfter, boolean writableStackTrace) {
+        super(null, null, writableStackTrace, writableStackTrace);
+        this.requestUri = requestUri;
+        this.requestMethod = requestMethod;
         this.status = status;
+        this.retryAfter = retryAfter;
+        this.responseBodyBytes = responseBodyBytes;
+        this.responseBodyTruncated = responseBodyTruncated;
+    }
+
+    /**
+     * Sets the maximum number of bytes of error response bodies that are kept. Longer bodies are truncated and not parsed as {@link AppServerErrorMessagesResponse}. 16 KiB by default.
+     *
+     * @param bytes Maximum size in bytes
+     */
+    public static void setMaxErrorBodyBytes(final int bytes) {
+        maxErrorBodyBytes = Math.max(0, bytes);
+    }
+
+    public static int getMaxErrorBodyBytes() {
+        return maxErrorBodyBytes;
+    }
+
+    /**
+     * When enabled, exceptions created from HTTP error responses don't capture a stack trace. Status errors are expected and often retried, the stack trace adds no information to the URI, method and status. Also enabled with the {@code rest-stackless-errors} system property.
+     *
+     * @param enabled True to skip stack traces of HTTP status errors
+     */
+    public static void setStackless(final boolean enabled) {
+        stackless = enabled;
+    }
+
+    public static boolean isStackless() {
+        return stackless;
     }
 
     @Override
     public String getFriendlyMessage() {
+        final AppServerErrorMessagesResponse errorResponse = getErrorResponse();
+
         String message;
         switch (status) {
             case HttpURLConnection.HTTP_BAD_REQUEST:
@@ -76,8 +141,9 @@ public class ApiRESTException extends UserFriendlyIOException {
         } else {
             message += ". HTTP Status code = " + status;
 
-            if (responseBody != null) {
-                message += ". Body = " + responseBody;
+            final String body = getResponseBody();
+            if (body != null) {
+                message += ". Body = " + body;
             }
         }
 
@@ -102,20 +168,58 @@ public class ApiRESTException extends UserFriendlyIOException {
         return getFriendlyMessage();
     }
 
-    public AppServerErrorMessagesResponse getErrorResponse() {
+    /**
+     * @return Wait requested by the server with a {@code Retry-After} header on 429 and 503 responses
+     */
+    public Optional<Duration> getRetryAfter() {
+        return Optional.ofNullable(retryAfter);
+    }
+
+    /**
+     * @return Error messages of the response, parsed on the first call. Null if the body is not an error messages response or was truncated
+     */
+    public synchronized AppServerErrorMessagesResponse getErrorResponse() {
+        if (!errorResponseParsed) {
+            errorResponseParsed = true;
+            if (responseBodyBytes != null && responseBodyBytes.length > 0 && !responseBodyTruncated) {
+                errorResponse = errorMessages(responseBodyBytes);
+            }
+        }
+
         return errorResponse;
     }
 
+    /**
+     * @return Body of the response decoded on the first call, possibly truncated to {@link #getMaxErrorBodyBytes()}
+     */
+    public synchronized String getResponseBody() {
+        if (!responseBodyDecoded) {
+            responseBodyDecoded = true;
+            if (responseBodyBytes != null) {
+                final String decoded = StringUtils.stripToNull(new String(responseBodyBytes, StandardCharsets.UTF_8));
+                responseBody = decoded != null && responseBodyTruncated ? decoded + "..." : decoded;
+            }
+        }
+
+        return responseBody;
+    }
+
+    public boolean isResponseBodyTruncated() {
+        return responseBodyTruncated;
+    }
+
     @Override
     public Object getSource() {
         String sourceIdHelpText = requestUri + " [" + requestMethod + "]";
-        if (responseBody != null) {
-            sourceIdHelpText += ": " + responseBody;
+        final String body = getResponseBody();
+        if (body != null) {
+            sourceIdHelpText += ": " + body;
         }
 
         return sourceIdHelpText;
     }
 
+    @GenerateJSONCodec
     public static class AppServerErrorMessagesResponse {
 
         private final List<String> messages;
@@ -171,26 +275,62 @@ public class ApiRESTException extends UserFriendlyIOException {
     }
 
     public static ApiRESTException from(final Response response) throws IOException {
-        final Optional<BufferedInputStream> inputStream = getResponseDataInputStream(response);
+        final Optional<BufferedSource> source = getResponseDataSource(response);
 
-        final Optional<String> responseBody = inputStream.map(in -> {
+        //Only the first bytes of the body are read, decoding and parsing happen when the message is needed:
+        byte[] body = null;
+        boolean truncated = false;
+        if (source.isPresent()) {
+            final int maxBytes = maxErrorBodyBytes;
             try {
-                return IOUtils.toString(in, StandardCharsets.UTF_8);
-            } catch (Exception ex) {
-                return null;
+                truncated = source.get().request(maxBytes + 1L);
+                body = source.get().readByteArray(Math.min(source.get().getBuffer().size(), maxBytes));
+            } catch (IOException ex) {
+                LOG.debug("Error reading error response body", ex);
             }
-        });
+        }
 
         return new ApiRESTException(
                 response.request().url().toString(),
                 response.request().method(),
-                responseBody.orElse(null),
-                responseBody.map(ApiRESTException::errorMessages).orElse(null),
-                response.code()
+                body,
+                truncated,
+                response.code(),
+                retryAfter(response),
+                !stackless
         );
     }
 
-    private static AppServerErrorMessagesResponse errorMessages(final String responseBody) {
+    private static Duration retryAfter(final Response response) {
+        if (response.code() != HTTP_TOO_MANY_REQUESTS && response.code() != HttpURLConnection.HTTP_UNAVAILABLE) {
+            return null;
+        }
+
+        final String value = StringUtils.trimToNull(response.header("Retry-After"));
+        if (value == null) {
+            return null;
+        }
+
+        //Either delay seconds or an HTTP date:
+        if (StringUtils.isNumeric(value)) {
+            try {
+                return Duration.ofSeconds(Long.parseLong(value));
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        final Date date = response.headers().getDate("Retry-After");
+        if (date == null) {
+            LOG.debug("Ignoring invalid Retry-After header: {}", value);
+            return null;
+        }
+
+        final Duration delay = Duration.ofMillis(date.getTime() - System.currentTimeMillis());
+        return delay.isNegative() ? Duration.ZERO : delay;
+    }
+
+    private static AppServerErrorMessagesResponse errorMessages(final byte[] responseBody) {
         try {
             return Utils.parseJSON(responseBody, AppServerErrorMessagesResponse.class);
         } catch (Exception ex) {
@@ -0,0 +1,325 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+import com.github.eduramiba.javafx.auth0.rest.metrics.RESTMetricsRegistry;
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide registry of OkHttp connection pools and dispatchers, keyed by scheme, host and port.
+ * <p>
+ * Every {@link AbstractRESTConsumer} derives its client from the shared base client of its host, so short lived consumers (like the one used for each login token exchange) reuse warm DNS, TCP and TLS connections instead of
+ * opening new ones.
+ * </p>
+ */
+public class HTTPClientRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HTTPClientRegistry.class);
+
+    private static final String NO_HOST_KEY = "default";
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    private static volatile PoolConfig poolConfig = PoolConfig.builder().build();
+
+    public static class PoolConfig {
+
+        private final int maxIdleConnections;
+        private final long keepAliveMillis;
+        private final int maxRequests;
+        private final int maxRequestsPerHost;
+
+        private PoolConfig(int maxIdleConnections, long keepAliveMillis, int maxRequests, int maxRequestsPerHost) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveMillis = keepAliveMillis;
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
+
+        public int getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        public long getKeepAliveMillis() {
+            return keepAliveMillis;
+        }
+
+        public int getMaxRequests() {
+            return maxRequests;
+        }
+
+        public int getMaxRequestsPerHost() {
+            return maxRequestsPerHost;
+        }
+
+        public static class Builder {
+
+            private int maxIdleConnections = 5;
+            private long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+            private int maxRequests = 64;
+            private int maxRequestsPerHost = 5;
+
+            private Builder() {
+            }
+
+            public Builder maxIdleConnections(final int value) {
+                this.maxIdleConnections = value;
+                return this;
+            }
+
+            public Builder keepAliveMillis(final long value) {
+                this.keepAliveMillis = value;
+                return this;
+            }
+
+            public Builder maxRequests(final int value) {
+                this.maxRequests = value;
+                return this;
+            }
+
+            public Builder maxRequestsPerHost(final int value) {
+                this.maxRequestsPerHost = value;
+                return this;
+            }
+
+            public PoolConfig build() {
+                return new PoolConfig(maxIdleConnections, keepAliveMillis, maxRequests, maxRequestsPerHost);
+            }
+        }
+
+        public static PoolConfig.Builder builder() {
+            return new PoolConfig.Builder();
+        }
+    }
+
+    public static class PoolStats {
+
+        private final String key;
+        private final int connectionCount;
+        private final int idleConnectionCount;
+        private final int runningCallsCount;
+        private final int queuedCallsCount;
+        private final int activeConsumers;
+
+        public PoolStats(String key, int connectionCount, int idleConnectionCount, int runningCallsCount, int queuedCallsCount, int activeConsumers) {
+            this.key = key;
+            this.connectionCount = connectionCount;
+            this.idleConnectionCount = idleConnectionCount;
+            this.runningCallsCount = runningCallsCount;
+            this.queuedCallsCount = queuedCallsCount;
+            this.activeConsumers = activeConsumers;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getConnectionCount() {
+            return connectionCount;
+        }
+
+        public int getIdleConnectionCount() {
+            return idleConnectionCount;
+        }
+
+        public int getRunningCallsCount() {
+            return runningCallsCount;
+        }
+
+        public int getQueuedCallsCount() {
+            return queuedCallsCount;
+        }
+
+        public int getActiveConsumers() {
+            return activeConsumers;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolStats{" + "key=" + key + ", connections=" + connectionCount + ", idle=" + idleConnectionCount
+                    + ", running=" + runningCallsCount + ", queued=" + queuedCallsCount + ", consumers=" + activeConsumers + "}";
+        }
+    }
+
+    private static class Entry {
+
+        private final String key;
+        private final ConnectionPool connectionPool;
+        private final Dispatcher dispatcher;
+        private final OkHttpClient baseClient;
+        private final AtomicInteger leases = new AtomicInteger();
+
+        private Entry(final String key, final PoolConfig config) {
+            this.key = key;
+            this.connectionPool = new ConnectionPool(config.getMaxIdleConnections(), config.getKeepAliveMillis(), TimeUnit.MILLISECONDS);
+            this.dispatcher = new Dispatcher(newDispatcherExecutor(key));
+            this.dispatcher.setMaxRequests(config.getMaxRequests());
+            this.dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+
+            this.baseClient = new OkHttpClient.Builder()
+                    .connectionPool(connectionPool)
+                    .dispatcher(dispatcher)
+                    .eventListenerFactory(RESTMetricsRegistry.EVENT_LISTENER_FACTORY)
+                    .build();
+        }
+
+        private PoolStats stats() {
+            return new PoolStats(
+                    key,
+                    connectionPool.connectionCount(),
+                    connectionPool.idleConnectionCount(),
+                    dispatcher.runningCallsCount(),
+                    dispatcher.queuedCallsCount(),
+                    leases.get()
+            );
+        }
+
+        private void shutdown() {
+            dispatcher.cancelAll();
+            dispatcher.executorService().shutdown();
+            connectionPool.evictAll();
+        }
+    }
+
+    private static ExecutorService newDispatcherExecutor(final String key) {
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        //Same settings as the default OkHttp dispatcher executor, but with daemon threads so idle pools never keep the JVM alive:
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "OkHttp Dispatcher " + key + " #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the pool configuration used for hosts that don't have a pool yet. Existing pools keep their configuration until {@link #shutdown()}.
+     *
+     * @param config Pool configuration
+     */
+    public static void setPoolConfig(final PoolConfig config) {
+        poolConfig = Objects.requireNonNull(config);
+    }
+
+    public static PoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    /**
+     * Returns a new client builder that shares the connection pool and dispatcher of the given URI host. Each call takes a lease that must be given back with {@link #release(URI)}.
+     *
+     * @param uri Base URI of the consumer
+     * @return Client builder to customize with interceptors and timeouts
+     */
+    public static OkHttpClient.Builder newClientBuilder(final URI uri) {
+        return lease(uri).baseClient.newBuilder();
+    }
+
+    /**
+     * Points a builder obtained from {@link #newClientBuilder(URI)} to the current connection pool and dispatcher of the given URI host, keeping the rest of its configuration. Used to recover after {@link #shutdown()}.
+     * Takes a lease like {@link #newClientBuilder(URI)}.
+     *
+     * @param uri Base URI of the consumer
+     * @param builder Builder to update
+     * @return The same builder
+     */
+    public static OkHttpClient.Builder rebindClientBuilder(final URI uri, final OkHttpClient.Builder builder) {
+        final Entry entry = lease(uri);
+
+        return builder
+                .connectionPool(entry.connectionPool)
+                .dispatcher(entry.dispatcher);
+    }
+
+    /**
+     * Returns a counter increased by every {@link #shutdown()}. A client built from this registry under an older generation uses a stopped dispatcher and must be rebuilt, see
+     * {@link #rebindClientBuilder(URI, OkHttpClient.Builder)}.
+     *
+     * @return Current generation
+     */
+    public static int getGeneration() {
+        return GENERATION.get();
+    }
+
+    private static Entry lease(final URI uri) {
+        final Entry entry = ENTRIES.computeIfAbsent(keyOf(uri), key -> {
+            LOG.debug("Creating shared HTTP connection pool for {}", key);
+            return new Entry(key, poolConfig);
+        });
+        entry.leases.incrementAndGet();
+
+        return entry;
+    }
+
+    /**
+     * Gives back a lease taken with {@link #newClientBuilder(URI)}. When the last lease of a host is given back its idle connections are closed right away, instead of after the keep-alive. The entry itself is kept,
+     * so a consumer created later (or a closed one still in use) reuses the dispatcher, whose daemon threads already stop after 60 seconds idle; {@link #shutdown()} releases everything.
+     *
+     * @param uri Base URI of the consumer
+     */
+    public static void release(final URI uri) {
+        final Entry entry = ENTRIES.get(keyOf(uri));
+        if (entry != null && entry.leases.updateAndGet(count -> Math.max(0, count - 1)) == 0) {
+            //Only idle connections are closed, calls still running keep theirs:
+            LOG.debug("Last consumer of {} closed, evicting idle connections", entry.key);
+            entry.connectionPool.evictAll();
+        }
+    }
+
+    public static PoolStats getStats(final URI uri) {
+        final String key = keyOf(uri);
+        final Entry entry = ENTRIES.get(key);
+
+        return entry != null ? entry.stats() : new PoolStats(key, 0, 0, 0, 0, 0);
+    }
+
+    public static Map<String, PoolStats> getAllStats() {
+        return ENTRIES.values().stream()
+                .map(Entry::stats)
+                .collect(Collectors.toUnmodifiableMap(PoolStats::getKey, stats -> stats));
+    }
+
+    /**
+     * Cancels in-flight calls, stops dispatcher threads and closes all pooled connections. It's meant for application exit, but is safe to call earlier: consumers created afterwards get fresh pools, and existing
+     * consumers move to fresh pools on their next request because the {@link #getGeneration() generation} changes.
+     */
+    public static void shutdown() {
+        for (String key : ENTRIES.keySet()) {
+            final Entry entry = ENTRIES.remove(key);
+            if (entry != null) {
+                LOG.debug("Shutting down shared HTTP connection pool: {}", entry.stats());
+                entry.shutdown();
+            }
+        }
+
+        //Only after the old entries are gone, so a client that sees the new generation can't get a stopped dispatcher:
+        GENERATION.incrementAndGet();
+    }
+
+    static String keyOf(final URI uri) {
+        if (uri == null || uri.getHost() == null) {
+            return NO_HOST_KEY;
+        }
+
+        final String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : "https";
+        int port = uri.getPort();
+        if (port == -1) {
+            port = "http".equals(scheme) ? 80 : 443;
+        }
+
+        return scheme + "://" + uri.getHost().toLowerCase() + ":" + port;
+    }
+}
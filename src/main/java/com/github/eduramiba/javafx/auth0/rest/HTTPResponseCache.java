@@ -0,0 +1,324 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+import static com.github.eduramiba.javafx.auth0.Constants.APP_HOME_FOLDER;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import okhttp3.Cache;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.jooq.lambda.fi.util.function.CheckedFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in HTTP response cache for {@link AbstractRESTConsumer}.
+ * <p>
+ * The disk tier is an OkHttp {@link Cache} under the app home folder: it is size bounded with LRU eviction, honors {@code Cache-Control} and sends conditional {@code If-None-Match}/{@code If-Modified-Since} requests
+ * when entries are stale. The memory tier keeps recently parsed objects by validator ({@code ETag} or {@code Last-Modified}), so a response served from disk or revalidated with a 304 skips JSON deserialization.
+ * </p>
+ * <p>
+ * Parsed objects are shared between callers with the same identity, so only immutable types should be requested through cached consumers. Responses to authenticated requests ({@code Authorization} or the
+ * consumer credentials header) are never stored on disk unless they are explicitly {@code Cache-Control: public}, see {@link #privateResponseInterceptor(String)}. Their parsed objects are kept in the memory tier
+ * instead, keyed by identity, and revalidated with the app's own conditional request on each use, see {@link #withValidator(Request, String)}. Both tiers are per user and must be cleared on logout.
+ * </p>
+ */
+public class HTTPResponseCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HTTPResponseCache.class);
+
+    private static final String CACHE_FOLDER = "http-cache";
+    private static final long DEFAULT_MAX_DISK_BYTES = 10L * 1024 * 1024;
+    private static final int DEFAULT_MAX_MEMORY_ENTRIES = 64;
+
+    private static long maxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+    private static Cache diskCache;
+
+    private static final Map<String, MemoryEntry> MEMORY = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MemoryEntry> eldest) {
+            return size() > DEFAULT_MAX_MEMORY_ENTRIES;
+        }
+    };
+
+    /**
+     * Network interceptor that marks responses to authenticated requests as {@code no-store}, unless the server declared them {@code public}, so user specific responses never reach the URL keyed disk cache.
+     *
+     * @param credentialsHeader Header carrying the consumer credentials, checked besides {@code Authorization}. May be null
+     * @return Interceptor
+     */
+    public static Interceptor privateResponseInterceptor(final String credentialsHeader) {
+        final String extraHeader = StringUtils.trimToNull(credentialsHeader);
+
+        return chain -> {
+            final Request request = chain.request();
+            final Response response = chain.proceed(request);
+
+            final boolean authenticated = request.header("Authorization") != null
+                    || (extraHeader != null && request.header(extraHeader) != null);
+            if (authenticated && !response.cacheControl().isPublic()) {
+                return response.newBuilder()
+                        .header("Cache-Control", "no-store")
+                        .build();
+            }
+
+            return response;
+        };
+    }
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder REVALIDATIONS = new LongAdder();
+    private static final LongAdder MEMORY_HITS = new LongAdder();
+
+    private static class MemoryEntry {
+
+        private final String validator;
+        private final boolean etag;
+        private final boolean revalidate;
+        private final Object value;
+
+        /**
+         * @param revalidate Whether the response was not stored on disk, so the app sends its own conditional requests for it
+         */
+        public MemoryEntry(String validator, boolean etag, boolean revalidate, Object value) {
+            this.validator = validator;
+            this.etag = etag;
+            this.revalidate = revalidate;
+            this.value = value;
+        }
+    }
+
+    public static class CacheStats {
+
+        private final long hits;
+        private final long misses;
+        private final long revalidations;
+        private final long memoryHits;
+        private final long diskSize;
+        private final long diskMaxSize;
+
+        public CacheStats(long hits, long misses, long revalidations, long memoryHits, long diskSize, long diskMaxSize) {
+            this.hits = hits;
+            this.misses = misses;
+            this.revalidations = revalidations;
+            this.memoryHits = memoryHits;
+            this.diskSize = diskSize;
+            this.diskMaxSize = diskMaxSize;
+        }
+
+        /**
+         * @return Responses served from the disk cache without contacting the server
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return Responses downloaded from the server, including conditional requests whose entry had changed
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return Conditional requests answered with 304 Not Modified
+         */
+        public long getRevalidations() {
+            return revalidations;
+        }
+
+        /**
+         * @return Cached or revalidated responses that reused an already parsed object
+         */
+        public long getMemoryHits() {
+            return memoryHits;
+        }
+
+        public long getDiskSize() {
+            return diskSize;
+        }
+
+        public long getDiskMaxSize() {
+            return diskMaxSize;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{" + "hits=" + hits + ", misses=" + misses + ", revalidations=" + revalidations + ", memoryHits=" + memoryHits
+                    + ", diskSize=" + diskSize + ", diskMaxSize=" + diskMaxSize + "}";
+        }
+    }
+
+    /**
+     * Sets the maximum size of the disk cache. Only has effect before the cache is first used.
+     *
+     * @param bytes Maximum size in bytes
+     */
+    public static synchronized void setMaxDiskBytes(final long bytes) {
+        if (diskCache != null) {
+            LOG.warn("HTTP disk cache already created, ignoring new max size {}", bytes);
+            return;
+        }
+
+        maxDiskBytes = bytes;
+    }
+
+    public static synchronized Cache getDiskCache() {
+        if (diskCache == null) {
+            final File directory = new File(new File(System.getProperty("user.home"), APP_HOME_FOLDER), CACHE_FOLDER);
+            diskCache = new Cache(directory, maxDiskBytes);
+        }
+
+        return diskCache;
+    }
+
+    /**
+     * Adds a conditional header with the validator of the object kept for this key, when its response could not be stored on disk ({@code no-store}, like the private responses of authenticated requests). A
+     * {@code 304 Not Modified} answer is then resolved by {@link #parse} with the kept object.
+     *
+     * @param request Request to send
+     * @param memoryKey Identity of the request and parsed type
+     * @return Request with the conditional header, or the same request
+     */
+    static Request withValidator(final Request request, final String memoryKey) {
+        final MemoryEntry entry;
+        synchronized (MEMORY) {
+            entry = MEMORY.get(memoryKey);
+        }
+
+        if (entry == null || !entry.revalidate || request.header("If-None-Match") != null || request.header("If-Modified-Since") != null) {
+            return request;
+        }
+
+        return request.newBuilder()
+                .header(entry.etag ? "If-None-Match" : "If-Modified-Since", entry.validator)
+                .build();
+    }
+
+    static <T> T parse(final Response response, final String memoryKey, final CheckedFunction<Response, T> parser) throws Throwable {
+        //Answer to a conditional request added by withValidator, the disk cache was not involved:
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED && response.cacheResponse() == null) {
+            return notModified(response, memoryKey);
+        }
+
+        final Response networkResponse = response.networkResponse();
+        final boolean fromCache = response.cacheResponse() != null
+                && (networkResponse == null || networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED);
+
+        if (!fromCache) {
+            MISSES.increment();
+        } else if (networkResponse == null) {
+            HITS.increment();
+        } else {
+            REVALIDATIONS.increment();
+        }
+
+        final String validator = validatorOf(response);
+        if (fromCache && validator != null) {
+            final MemoryEntry entry;
+            synchronized (MEMORY) {
+                entry = MEMORY.get(memoryKey);
+            }
+
+            if (entry != null && validator.equals(entry.validator)) {
+                MEMORY_HITS.increment();
+
+                @SuppressWarnings("unchecked")
+                final T value = (T) entry.value;
+                return value;
+            }
+        }
+
+        final T value = parser.apply(response);
+
+        if (validator != null && value != null && response.isSuccessful()) {
+            final MemoryEntry entry = new MemoryEntry(validator, response.header("ETag") != null, response.cacheControl().noStore(), value);
+            synchronized (MEMORY) {
+                MEMORY.put(memoryKey, entry);
+            }
+        }
+
+        return value;
+    }
+
+    private static <T> T notModified(final Response response, final String memoryKey) throws IOException {
+        final Request request = response.request();
+        final String sent = request.header("If-None-Match") != null ? request.header("If-None-Match") : request.header("If-Modified-Since");
+
+        final MemoryEntry entry;
+        synchronized (MEMORY) {
+            entry = MEMORY.get(memoryKey);
+        }
+
+        if (entry == null || sent == null || !sent.equals(entry.validator)) {
+            //Evicted or replaced since the request was sent, a retry sends an unconditional request:
+            MISSES.increment();
+            throw new IOException("Not modified response for " + request.url() + " without a kept value");
+        }
+
+        REVALIDATIONS.increment();
+        MEMORY_HITS.increment();
+
+        @SuppressWarnings("unchecked")
+        final T value = (T) entry.value;
+        return value;
+    }
+
+    private static String validatorOf(final Response response) {
+        final String etag = response.header("ETag");
+        if (etag != null) {
+            return etag;
+        }
+
+        return response.header("Last-Modified");
+    }
+
+    /**
+     * Removes every cached response from memory and disk. Should be called when the logged user changes.
+     */
+    public static void clear() {
+        synchronized (MEMORY) {
+            MEMORY.clear();
+        }
+
+        final Cache cache;
+        synchronized (HTTPResponseCache.class) {
+            cache = diskCache;
+        }
+
+        if (cache != null) {
+            try {
+                cache.evictAll();
+            } catch (IOException ex) {
+                LOG.warn("Error clearing HTTP disk cache", ex);
+            }
+        }
+    }
+
+    public static CacheStats getStats() {
+        final Cache cache;
+        long diskMaxSize;
+        synchronized (HTTPResponseCache.class) {
+            cache = diskCache;
+            diskMaxSize = maxDiskBytes;
+        }
+
+        long diskSize = 0;
+        if (cache != null) {
+            diskMaxSize = cache.maxSize();
+            try {
+                diskSize = cache.size();
+            } catch (IOException ex) {
+                LOG.debug("Error reading HTTP disk cache size", ex);
+            }
+        }
+
+        return new CacheStats(HITS.sum(), MISSES.sum(), REVALIDATIONS.sum(), MEMORY_HITS.sum(), diskSize, diskMaxSize);
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+import com.github.eduramiba.javafx.auth0.utils.Utils;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.jooq.lambda.Unchecked;
+
+/**
+ * Request body that serializes its value with Jackson straight into a gzip sink, so a large JSON is never materialized as a String or byte array. The value is serialized again on each retry. Its length is unknown
+ * until written, so it's sent chunked: use {@link #create(Object, long)}, which only streams compressed bodies and sends the rest with a {@code Content-Length}.
+ */
+public class JSONRequestBody extends RequestBody {
+
+    private final Object value;
+    private final boolean gzip;
+
+    public JSONRequestBody(Object value) {
+        this(value, false);
+    }
+
+    /**
+     * @param value Value to serialize
+     * @param gzip True to compress the body. The request must also have a {@code Content-Encoding: gzip} header
+     */
+    public JSONRequestBody(Object value, boolean gzip) {
+        this.value = value;
+        this.gzip = gzip;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return AbstractRESTConsumer.JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        //Unknown until written, sent chunked:
+        return -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (gzip) {
+            try (BufferedSink gzipSink = Okio.buffer(new GzipSink(sink))) {
+                Utils.writeJSON(gzipSink.outputStream(), value);
+            }
+        } else {
+            Utils.writeJSON(sink.outputStream(), value);
+        }
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * Creates the body for a value. Bodies that are not compressed are serialized once and sent with a {@code Content-Length}. With compression, serialization to memory stops as soon as the threshold is reached:
+     * smaller bodies reuse those bytes, larger ones are streamed gzipped (check {@link #isGzip()} to set the {@code Content-Encoding: gzip} header).
+     *
+     * @param value Value to serialize
+     * @param compressionThresholdBytes Size over which the body is compressed, negative to never compress
+     * @return Request body
+     */
+    public static RequestBody create(final Object value, final long compressionThresholdBytes) {
+        if (compressionThresholdBytes < 0) {
+            return RequestBody.create(Utils.toJSONBytes(value), AbstractRESTConsumer.JSON);
+        }
+
+        final BoundedOutputStream out = new BoundedOutputStream(compressionThresholdBytes);
+        try {
+            Utils.writeJSON(out, value);
+        } catch (SizeReachedException ex) {
+            return new JSONRequestBody(value, true);
+        } catch (IOException ex) {
+            Unchecked.throwChecked(ex);
+        }
+
+        return RequestBody.create(out.toByteArray(), AbstractRESTConsumer.JSON);
+    }
+
+    private static class SizeReachedException extends IOException {
+
+        public SizeReachedException() {
+            super("Size threshold reached", null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * In-memory stream that fails as soon as it would hold more than the threshold.
+     */
+    private static class BoundedOutputStream extends ByteArrayOutputStream {
+
+        private final long thresholdBytes;
+
+        public BoundedOutputStream(long thresholdBytes) {
+            super((int) Math.min(thresholdBytes, 512));
+            this.thresholdBytes = thresholdBytes;
+        }
+
+        @Override
+        public void write(int b) {
+            check(1);
+            super.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            check(len);
+            super.write(b, off, len);
+        }
+
+        private void check(final int bytes) {
+            if (count + (long) bytes > thresholdBytes) {
+                Unchecked.throwChecked(new SizeReachedException());
+            }
+        }
+    }
+}
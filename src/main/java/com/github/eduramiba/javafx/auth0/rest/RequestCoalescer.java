@@ -0,0 +1,204 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import net.jodah.failsafe.function.CheckedSupplier;
+import org.jooq.lambda.Unchecked;
+
+/**
+ * Process-wide single-flight coalescing of identical requests. While a request is in flight, callers with the same key wait for it and share its parsed result instead of sending a duplicate.
+ * <p>
+ * Keys must include everything that changes the result, such as method, URI, credentials and result type. Results are shared between callers, so they should be immutable.
+ * </p>
+ */
+public class RequestCoalescer {
+
+    private static final Map<String, InFlight> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private static final LongAdder EXECUTED = new LongAdder();
+    private static final LongAdder DEDUPLICATED = new LongAdder();
+
+    public static class CoalescingStats {
+
+        private final long executed;
+        private final long deduplicated;
+        private final int inFlight;
+
+        public CoalescingStats(long executed, long deduplicated, int inFlight) {
+            this.executed = executed;
+            this.deduplicated = deduplicated;
+            this.inFlight = inFlight;
+        }
+
+        /**
+         * @return Requests that were actually sent
+         */
+        public long getExecuted() {
+            return executed;
+        }
+
+        /**
+         * @return Calls that joined an in-flight request instead of sending their own
+         */
+        public long getDeduplicated() {
+            return deduplicated;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        @Override
+        public String toString() {
+            return "CoalescingStats{" + "executed=" + executed + ", deduplicated=" + deduplicated + ", inFlight=" + inFlight + "}";
+        }
+    }
+
+    /**
+     * Request shared by every caller with the same key. Asynchronous callers can detach by cancelling their own future, the request itself is cancelled when the last caller detaches.
+     */
+    private static class InFlight {
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger(1);
+        private volatile CompletableFuture<?> request;
+
+        /**
+         * @return False if the request was already cancelled by its last caller and can't be joined
+         */
+        private boolean join() {
+            while (true) {
+                final int count = waiters.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (waiters.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void detach(final String key) {
+            if (waiters.decrementAndGet() == 0) {
+                IN_FLIGHT.remove(key, this);
+                result.cancel(false);
+
+                final CompletableFuture<?> pending = request;
+                if (pending != null) {
+                    pending.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static InFlight joinOrCreate(final String key, final InFlight own) {
+        while (true) {
+            final InFlight existing = IN_FLIGHT.putIfAbsent(key, own);
+            if (existing == null || existing.join()) {
+                return existing;
+            }
+
+            //Cancelled just now by its last caller:
+            IN_FLIGHT.remove(key, existing);
+        }
+    }
+
+    /**
+     * Runs the supplier in the calling thread, unless an identical request is already in flight, in which case it waits for that one.
+     *
+     * @param key Request key
+     * @param supplier Executes the request
+     * @return Result of the request
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T execute(final String key, final CheckedSupplier<T> supplier) {
+        final InFlight own = new InFlight();
+        final InFlight existing = joinOrCreate(key, own);
+
+        if (existing != null) {
+            DEDUPLICATED.increment();
+            try {
+                return (T) existing.result.join();
+            } catch (CompletionException ex) {
+                Unchecked.throwChecked(ex.getCause() != null ? ex.getCause() : ex);
+                return null;
+            }
+        }
+
+        EXECUTED.increment();
+        try {
+            final T value = supplier.get();
+            own.result.complete(value);
+            return value;
+        } catch (Throwable ex) {
+            own.result.completeExceptionally(ex);
+            Unchecked.throwChecked(ex);
+            return null;
+        } finally {
+            IN_FLIGHT.remove(key, own);
+        }
+    }
+
+    /**
+     * Starts the request unless an identical one is already in flight. Every caller gets its own future: cancelling it detaches that caller, and cancels the shared request (and its HTTP call) when no other caller is
+     * waiting for it.
+     *
+     * @param key Request key
+     * @param supplier Starts the request
+     * @return Future with the result of the request
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> executeAsync(final String key, final Supplier<CompletableFuture<T>> supplier) {
+        final InFlight own = new InFlight();
+        final InFlight existing = joinOrCreate(key, own);
+
+        final InFlight shared;
+        if (existing != null) {
+            DEDUPLICATED.increment();
+            shared = existing;
+        } else {
+            EXECUTED.increment();
+            shared = own;
+            try {
+                final CompletableFuture<T> request = supplier.get();
+                own.request = request;
+                request.whenComplete((value, ex) -> {
+                    IN_FLIGHT.remove(key, own);
+                    if (ex != null) {
+                        own.result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                    } else {
+                        own.result.complete(value);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                IN_FLIGHT.remove(key, own);
+                own.result.completeExceptionally(ex);
+            }
+        }
+
+        final CompletableFuture<T> caller = new CompletableFuture<>();
+        shared.result.whenComplete((value, ex) -> {
+            if (ex != null) {
+                caller.completeExceptionally(ex);
+            } else {
+                caller.complete((T) value);
+            }
+        });
+        caller.whenComplete((value, ex) -> {
+            if (caller.isCancelled()) {
+                shared.detach(key);
+            }
+        });
+
+        return caller;
+    }
+
+    public static CoalescingStats getStats() {
+        return new CoalescingStats(EXECUTED.sum(), DEDUPLICATED.sum(), IN_FLIGHT.size());
+    }
+}
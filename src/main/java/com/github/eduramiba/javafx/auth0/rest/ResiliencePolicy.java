@@ -0,0 +1,376 @@
+package com.github.eduramiba.javafx.auth0.rest;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import net.jodah.failsafe.CircuitBreaker;
+import net.jodah.failsafe.CircuitBreakerOpenException;
+import net.jodah.failsafe.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retry and fail-fast policies for REST consumers, kept per host (scheme, host and port):
+ * <ul>
+ * <li>Exponential backoff with full jitter, so clients that failed together don't retry together.</li>
+ * <li>{@code Retry-After} of 429 and 503 responses is honored, and requests are not retried when the server asks to wait longer than {@code maxRetryAfter}.</li>
+ * <li>A token bucket retry budget: every request deposits a fraction of a token and every retry withdraws a full one, so during an outage retries stay at a fixed fraction of the traffic instead of multiplying it.</li>
+ * <li>A circuit breaker that fails fast with {@link ApiRESTCircuitOpenException} while the host keeps failing, and probes it again after a delay.</li>
+ * </ul>
+ * <p>
+ * State is shared by every consumer using the same policy instance, which is {@link #DEFAULT} unless one is set with {@link ApiRESTConsumer#setResiliencePolicy(ResiliencePolicy)}.
+ * </p>
+ */
+public class ResiliencePolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResiliencePolicy.class);
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final long MILLI_TOKENS_PER_TOKEN = 1000;
+
+    public static final ResiliencePolicy DEFAULT = ResiliencePolicy.builder().build();
+
+    private final int maxRetries;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final Duration maxRetryAfter;
+    private final double retryBudgetRatio;
+    private final int retryBudgetMaxTokens;
+    private final int failureThreshold;
+    private final int failureThresholdExecutions;
+    private final int successThreshold;
+    private final Duration openDelay;
+
+    private final Map<String, HostPolicies> hosts = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Receives state changes of the per-host policies. Called from the threads doing the requests, so implementations should be quick.
+     */
+    public interface Listener {
+
+        default void onCircuitStateChange(String host, CircuitBreaker.State state) {
+            //NOOP
+        }
+
+        default void onRetryBudgetExhausted(String host) {
+            //NOOP
+        }
+    }
+
+    private ResiliencePolicy(int maxRetries, Duration baseDelay, Duration maxDelay, Duration maxRetryAfter, double retryBudgetRatio, int retryBudgetMaxTokens,
+            int failureThreshold, int failureThresholdExecutions, int successThreshold, Duration openDelay) {
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxRetryAfter = maxRetryAfter;
+        this.retryBudgetRatio = retryBudgetRatio;
+        this.retryBudgetMaxTokens = retryBudgetMaxTokens;
+        this.failureThreshold = failureThreshold;
+        this.failureThresholdExecutions = failureThresholdExecutions;
+        this.successThreshold = successThreshold;
+        this.openDelay = openDelay;
+    }
+
+    public static class Builder {
+
+        private int maxRetries = 3;
+        private Duration baseDelay = Duration.ofMillis(200);
+        private Duration maxDelay = Duration.ofSeconds(5);
+        private Duration maxRetryAfter = Duration.ofSeconds(30);
+        private double retryBudgetRatio = 0.2;
+        private int retryBudgetMaxTokens = 10;
+        private int failureThreshold = 5;
+        private int failureThresholdExecutions = 10;
+        private int successThreshold = 2;
+        private Duration openDelay = Duration.ofSeconds(30);
+
+        private Builder() {
+        }
+
+        public Builder maxRetries(final int value) {
+            this.maxRetries = value;
+            return this;
+        }
+
+        /**
+         * @param value Upper bound of the first retry delay, doubled on each retry
+         * @return This builder
+         */
+        public Builder baseDelay(final Duration value) {
+            this.baseDelay = Objects.requireNonNull(value);
+            return this;
+        }
+
+        public Builder maxDelay(final Duration value) {
+            this.maxDelay = Objects.requireNonNull(value);
+            return this;
+        }
+
+        /**
+         * @param value Longest {@code Retry-After} that is waited for. Longer ones fail the request right away
+         * @return This builder
+         */
+        public Builder maxRetryAfter(final Duration value) {
+            this.maxRetryAfter = Objects.requireNonNull(value);
+            return this;
+        }
+
+        /**
+         * @param value Tokens deposited by each request, each retry costs one token. 0.2 allows one retry every 5 requests once the reserve is spent
+         * @return This builder
+         */
+        public Builder retryBudgetRatio(final double value) {
+            this.retryBudgetRatio = value;
+            return this;
+        }
+
+        /**
+         * @param value Size of the token bucket, which is also the initial reserve of retries
+         * @return This builder
+         */
+        public Builder retryBudgetMaxTokens(final int value) {
+            this.retryBudgetMaxTokens = value;
+            return this;
+        }
+
+        /**
+         * Opens the circuit when {@code failures} of the last {@code executions} attempts to a host have failed.
+         *
+         * @param failures Failures to open
+         * @param executions Window of attempts
+         * @return This builder
+         */
+        public Builder failureThreshold(final int failures, final int executions) {
+            this.failureThreshold = failures;
+            this.failureThresholdExecutions = executions;
+            return this;
+        }
+
+        /**
+         * @param value Consecutive successful probes needed to close a half-open circuit
+         * @return This builder
+         */
+        public Builder successThreshold(final int value) {
+            this.successThreshold = value;
+            return this;
+        }
+
+        /**
+         * @param value Time the circuit stays open before letting probe requests through
+         * @return This builder
+         */
+        public Builder openDelay(final Duration value) {
+            this.openDelay = Objects.requireNonNull(value);
+            return this;
+        }
+
+        public ResiliencePolicy build() {
+            return new ResiliencePolicy(maxRetries, baseDelay, maxDelay, maxRetryAfter, retryBudgetRatio, retryBudgetMaxTokens,
+                    failureThreshold, failureThresholdExecutions, successThreshold, openDelay);
+        }
+    }
+
+    public static ResiliencePolicy.Builder builder() {
+        return new ResiliencePolicy.Builder();
+    }
+
+    public void addListener(final Listener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the policies of the host of the given URI, creating them on first use.
+     *
+     * @param uri Request URI
+     * @return Host policies
+     */
+    public HostPolicies forHost(final URI uri) {
+        return hosts.computeIfAbsent(HTTPClientRegistry.keyOf(uri), HostPolicies::new);
+    }
+
+    public CircuitBreaker.State getCircuitState(final URI uri) {
+        return forHost(uri).getCircuitBreaker().getState();
+    }
+
+    public double getRetryBudgetTokens(final URI uri) {
+        return forHost(uri).budget.getTokens();
+    }
+
+    /**
+     * Retry policy, circuit breaker and retry budget of one host.
+     */
+    public class HostPolicies {
+
+        private final String host;
+        private final RetryBudget budget;
+        private final RetryPolicy<Object> retryPolicy;
+        private final CircuitBreaker<Object> circuitBreaker;
+
+        private HostPolicies(final String host) {
+            this.host = host;
+            this.budget = new RetryBudget(retryBudgetMaxTokens, retryBudgetRatio);
+
+            this.retryPolicy = new RetryPolicy<>()
+                    .withMaxRetries(maxRetries)
+                    .withDelay((result, failure, context) -> computeDelay(failure, context.getAttemptCount()))
+                    .handleIf((Throwable ex) -> isRetryable(ex))
+                    //Only failures that would be retried count as budget aborts, others keep their own failure:
+                    .abortIf((result, ex) -> ex != null && isRetryable(ex) && !budget.hasToken())
+                    .onRetry(event -> budget.withdraw())
+                    .onFailedAttempt(event -> {
+                        LOG.warn("Error doing request to {}, will retry if allowed", host, event.getLastFailure());
+                    })
+                    .onAbort(event -> {
+                        LOG.warn("Retry budget exhausted for {}, not retrying", host);
+                        listeners.forEach(listener -> listener.onRetryBudgetExhausted(host));
+                    })
+                    .onFailure(event -> {
+                        LOG.error("Irrecoverable error doing request", event.getFailure());
+                    });
+
+            this.circuitBreaker = new CircuitBreaker<>()
+                    .handleIf((Throwable ex) -> isHostFailure(ex))
+                    .withFailureThreshold(failureThreshold, failureThresholdExecutions)
+                    .withSuccessThreshold(successThreshold)
+                    .withDelay(openDelay)
+                    .onOpen(() -> onCircuitStateChange(CircuitBreaker.State.OPEN))
+                    .onHalfOpen(() -> onCircuitStateChange(CircuitBreaker.State.HALF_OPEN))
+                    .onClose(() -> onCircuitStateChange(CircuitBreaker.State.CLOSED));
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public RetryPolicy<Object> getRetryPolicy() {
+            return retryPolicy;
+        }
+
+        public CircuitBreaker<Object> getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        /**
+         * Must be called once for each new request (not for its retries), it funds the retry budget.
+         */
+        public void onRequest() {
+            budget.deposit();
+        }
+
+        private void onCircuitStateChange(final CircuitBreaker.State state) {
+            if (state == CircuitBreaker.State.OPEN) {
+                LOG.warn("Circuit opened for {}, requests will fail fast for {}", host, openDelay);
+            } else {
+                LOG.info("Circuit {} for {}", state, host);
+            }
+
+            listeners.forEach(listener -> listener.onCircuitStateChange(host, state));
+        }
+    }
+
+    private Duration computeDelay(final Throwable failure, final int attempts) {
+        final Optional<Duration> retryAfter = retryAfterOf(failure);
+        if (retryAfter.isPresent()) {
+            return retryAfter.get();
+        }
+
+        //Full jitter: random delay between 0 and the exponential backoff, capped:
+        final long capMillis = maxDelay.toMillis();
+        final int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        final long backoffMillis = Math.min(capMillis, baseDelay.toMillis() << exponent);
+
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(backoffMillis + 1));
+    }
+
+    private boolean isRetryable(final Throwable ex) {
+        if (ex instanceof CircuitBreakerOpenException || ex instanceof ApiRESTCircuitOpenException) {
+            return false;
+        }
+
+        if (ex instanceof ApiRESTException) {
+            //Do not retry some status codes:
+            final int statusCode = ((ApiRESTException) ex).getStatus();
+            if ((statusCode >= 300 && statusCode < 400)
+                    || statusCode == HttpURLConnection.HTTP_BAD_REQUEST
+                    || statusCode == HttpURLConnection.HTTP_NOT_FOUND
+                    || statusCode == HttpURLConnection.HTTP_FORBIDDEN
+                    || statusCode == HttpURLConnection.HTTP_UNAUTHORIZED
+                    || statusCode == HttpURLConnection.HTTP_BAD_METHOD
+                    || statusCode == HttpURLConnection.HTTP_NOT_ACCEPTABLE
+                    || statusCode == HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+                return false;
+            }
+
+            final Optional<Duration> retryAfter = retryAfterOf(ex);
+            if (retryAfter.isPresent() && retryAfter.get().compareTo(maxRetryAfter) > 0) {
+                LOG.warn("Server asked to retry after {}, longer than the max of {}. Not retrying", retryAfter.get(), maxRetryAfter);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isHostFailure(final Throwable ex) {
+        if (ex instanceof ApiRESTException) {
+            final int statusCode = ((ApiRESTException) ex).getStatus();
+            return statusCode >= 500 || statusCode == HTTP_TOO_MANY_REQUESTS;
+        }
+
+        return ex instanceof ApiRESTIOException || ex instanceof IOException;
+    }
+
+    private static Optional<Duration> retryAfterOf(final Throwable failure) {
+        if (failure instanceof ApiRESTException) {
+            return ((ApiRESTException) failure).getRetryAfter();
+        }
+
+        return Optional.empty();
+    }
+
+    private static class RetryBudget {
+
+        private final long maxMilliTokens;
+        private final long depositMilliTokens;
+        private final AtomicLong milliTokens;
+
+        public RetryBudget(int maxTokens, double ratio) {
+            this.maxMilliTokens = maxTokens * MILLI_TOKENS_PER_TOKEN;
+            this.depositMilliTokens = Math.round(ratio * MILLI_TOKENS_PER_TOKEN);
+            this.milliTokens = new AtomicLong(maxMilliTokens);
+        }
+
+        public void deposit() {
+            milliTokens.accumulateAndGet(depositMilliTokens, (current, deposit) -> Math.min(maxMilliTokens, current + deposit));
+        }
+
+        public boolean hasToken() {
+            return milliTokens.get() >= MILLI_TOKENS_PER_TOKEN;
+        }
+
+        public void withdraw() {
+            //Concurrent retries may both see the last token, never go below zero so the budget recovers at the normal pace:
+            milliTokens.accumulateAndGet(MILLI_TOKENS_PER_TOKEN, (current, withdrawal) -> Math.max(0, current - withdrawal));
+        }
+
+        public double getTokens() {
+            return milliTokens.get() / (double) MILLI_TOKENS_PER_TOKEN;
+        }
+    }
+}
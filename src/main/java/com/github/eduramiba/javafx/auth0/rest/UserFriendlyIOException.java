@@ -17,6 +17,10 @@ public abstract class UserFriendlyIOException extends RuntimeException implement
         super(cause);
     }
 
+    protected UserFriendlyIOException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
     @Override
     public String getFriendlyMessage() {
         return getMessage();
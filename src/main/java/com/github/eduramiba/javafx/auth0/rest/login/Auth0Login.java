@@ -1,21 +1,17 @@
 package com.github.eduramiba.javafx.auth0.rest.login;
 
-import com.github.eduramiba.javafx.auth0.utils.I18N;
-import com.github.eduramiba.javafx.auth0.Launcher;
+import com.github.eduramiba.javafx.auth0.utils.FXUtils;
 import com.github.eduramiba.javafx.auth0.UserInfo;
 import java.io.IOException;
+import java.net.URI;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
 import javafx.concurrent.Worker;
-import javafx.scene.Scene;
-import javafx.scene.image.Image;
 import javafx.scene.web.WebEngine;
-import javafx.scene.web.WebView;
-import javafx.stage.Modality;
-import javafx.stage.Stage;
-import javafx.stage.WindowEvent;
 import org.jooq.lambda.Unchecked;
 import org.slf4j.LoggerFactory;
 
@@ -23,55 +19,125 @@ public class Auth0Login {
 
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(Auth0Login.class);
 
-    private static final int WINDOW_WIDTH = 400;
-    private static final int WINDOW_HEIGHT = 550;
+    private static final long BROWSER_LOGIN_TIMEOUT_MINUTES = 5;
+
+    public static final String REDIRECT_MODE_PROPERTY = "auth0-redirect-mode";
+    public static final String PREWARM_PROPERTY = "auth0-login-prewarm";
+
+    /**
+     * How the authorization code gets back to the app.
+     */
+    public enum RedirectMode {
+        /**
+         * Embedded WebView, the redirect is detected by inspecting its location after each page load.
+         */
+        WEBVIEW,
+        /**
+         * Embedded WebView redirected to a {@link LoopbackRedirectListener}.
+         */
+        LOOPBACK_WEBVIEW,
+        /**
+         * System browser redirected to a {@link LoopbackRedirectListener}, no WebView is created.
+         */
+        LOOPBACK_BROWSER
+    }
 
-    public static CompletableFuture<Optional<UserInfo>> login() {
-        final CompletableFuture<Optional<UserInfo>> future = new CompletableFuture<>();
+    /**
+     * What to do with the WebView cookies after each login.
+     */
+    public enum CookiePolicy {
+        /**
+         * Keep them, so the identity provider session makes the next login faster.
+         */
+        KEEP,
+        /**
+         * Remove them, so the next login always asks for credentials. Only works when no other cookie handler was installed before the first login window, see {@link java.net.CookieHandler#setDefault}.
+         */
+        CLEAR
+    }
 
-        Platform.runLater(() -> {
-            final WebView webView = new WebView();
-            final WebEngine engine = webView.getEngine();
+    private static volatile RedirectMode redirectMode = redirectModeFromProperty();
+    private static volatile CookiePolicy cookiePolicy = CookiePolicy.KEEP;
+    private static volatile boolean prewarmEnabled = Boolean.getBoolean(PREWARM_PROPERTY);
+
+    private static RedirectMode redirectModeFromProperty() {
+        final String value = System.getProperty(REDIRECT_MODE_PROPERTY);
+        if (value == null) {
+            return RedirectMode.WEBVIEW;
+        }
+
+        try {
+            return RedirectMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            LOG.warn("Unknown login redirect mode {}, using {}", value, RedirectMode.WEBVIEW);
+            return RedirectMode.WEBVIEW;
+        }
+    }
 
-            final Scene scene = new Scene(webView);
-            final Stage stage = new Stage();
+    /**
+     * Sets the redirect mode used by {@link #login()}. Also configurable with the {@code auth0-redirect-mode} system property.
+     *
+     * @param mode Redirect mode
+     */
+    public static void setRedirectMode(final RedirectMode mode) {
+        redirectMode = Objects.requireNonNull(mode);
+    }
 
-            final Auth0PKCEFlow.FlowInfo flow = Auth0PKCEFlow.createAuthorizationFlow();
-            engine.getLoadWorker().stateProperty().addListener((ObservableValue<? extends Worker.State> observable, Worker.State oldValue, Worker.State newValue) -> {
-                if (newValue == Worker.State.SUCCEEDED) {
-                    try {
-                        final Optional<UserInfo> userInfo = Auth0PKCEFlow.checkURLForLoginSuccess(flow, engine.getLocation());
-
-                        userInfo.ifPresent(user -> {
-                            future.complete(Optional.of(user));
-                            stage.close();
-                        });
-                    } catch (IOException ex) {
-                        Unchecked.throwChecked(ex);
-                    }
-                }
-            });
+    public static RedirectMode getRedirectMode() {
+        return redirectMode;
+    }
 
-            engine.load(flow.getAuthorizeUrl());
+    public static void setCookiePolicy(final CookiePolicy policy) {
+        cookiePolicy = Objects.requireNonNull(policy);
+    }
 
-            final Image icon = new Image(Launcher.class.getResourceAsStream("/icon.png"));
+    public static CookiePolicy getCookiePolicy() {
+        return cookiePolicy;
+    }
 
-            stage.setWidth(WINDOW_WIDTH);
-            stage.setHeight(WINDOW_HEIGHT);
+    /**
+     * Enables reusing one login window for every login, also enabled with the {@code auth0-login-prewarm} system property. Takes effect with the next {@link #prewarm()} or login.
+     *
+     * @param enabled True to reuse the login window
+     */
+    public static void setPrewarmEnabled(final boolean enabled) {
+        prewarmEnabled = enabled;
+        if (!enabled) {
+            LoginWindow.release();
+        }
+    }
 
-            stage.getIcons().add(icon);
-            stage.titleProperty().set(I18N.getBundle("messages").getString("app.title.login"));
-            stage.initModality(Modality.APPLICATION_MODAL);
-            stage.setScene(scene);
-            stage.centerOnScreen();
-            stage.show();
+    public static boolean isPrewarmEnabled() {
+        return prewarmEnabled;
+    }
 
-            stage.addEventHandler(WindowEvent.WINDOW_HIDDEN, (WindowEvent event) -> {
-                if (!future.isDone()) {
-                    future.complete(Optional.empty());
-                }
-            });
-        });
+    /**
+     * Creates the reusable login window at idle, if pre-warming is enabled. Meant to be called once the main window is shown.
+     */
+    public static void prewarm() {
+        if (prewarmEnabled) {
+            LoginWindow.prewarm();
+        }
+    }
+
+    /**
+     * Frees the reusable login window and its native WebView memory. It is created again on the next login.
+     */
+    public static void releaseLoginWindow() {
+        LoginWindow.release();
+    }
+
+    public static CompletableFuture<Optional<UserInfo>> login() {
+        return login(redirectMode);
+    }
+
+    public static CompletableFuture<Optional<UserInfo>> login(final RedirectMode mode) {
+        final CompletableFuture<Optional<UserInfo>> future;
+        if (mode == RedirectMode.WEBVIEW) {
+            future = loginWithWebView();
+        } else {
+            future = loginWithLoopback(mode);
+        }
 
         return future.whenComplete((userOptional, ex) -> {
             if (ex != null) {
@@ -86,4 +152,73 @@ public class Auth0Login {
         });
     }
 
+    private static CompletableFuture<Optional<UserInfo>> loginWithWebView() {
+        final CompletableFuture<Optional<UserInfo>> future = new CompletableFuture<>();
+
+        Platform.runLater(() -> {
+            final Auth0PKCEFlow.FlowInfo flow = Auth0PKCEFlow.createAuthorizationFlow();
+            final LoginWindow window = LoginWindow.acquire(prewarmEnabled);
+            final WebEngine engine = window.getEngine();
+
+            window.open(flow.getAuthorizeUrl(), future, (ObservableValue<? extends Worker.State> observable, Worker.State oldValue, Worker.State newValue) -> {
+                if (newValue == Worker.State.SUCCEEDED) {
+                    Auth0PKCEFlow.checkURLForLoginSuccessAsync(flow, engine.getLocation())
+                            .whenComplete((userInfo, ex) -> {
+                                if (ex != null) {
+                                    future.completeExceptionally(ex);
+                                    Platform.runLater(window::close);
+                                } else if (userInfo.isPresent()) {
+                                    future.complete(userInfo);
+                                    Platform.runLater(window::close);
+                                }
+                            });
+                }
+            });
+        });
+
+        return future;
+    }
+
+    private static CompletableFuture<Optional<UserInfo>> loginWithLoopback(final RedirectMode mode) {
+        final LoopbackRedirectListener listener;
+        try {
+            listener = LoopbackRedirectListener.bind();
+        } catch (IOException ex) {
+            LOG.warn("Could not start login redirect listener, using WebView redirect detection", ex);
+            return loginWithWebView();
+        }
+
+        final CompletableFuture<Optional<UserInfo>> future = new CompletableFuture<>();
+        final Auth0PKCEFlow.FlowInfo flow = Auth0PKCEFlow.createAuthorizationFlow(listener.getRedirectURI());
+        listener.start(flow.getState());
+
+        listener.getCallback()
+                .thenCompose(params -> Auth0PKCEFlow.exchangeCodeAsync(flow, params))
+                .whenComplete((userInfo, ex) -> {
+                    if (ex != null) {
+                        future.completeExceptionally(ex);
+                    } else {
+                        future.complete(userInfo);
+                    }
+                });
+
+        //Cancelled login (window closed or timeout) stops the listener:
+        future.whenComplete((userInfo, ex) -> listener.close());
+
+        if (mode == RedirectMode.LOOPBACK_BROWSER) {
+            FXUtils.openURL(URI.create(flow.getAuthorizeUrl()));
+
+            //There is no way to know if the user closed the browser tab:
+            future.completeOnTimeout(Optional.empty(), BROWSER_LOGIN_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } else {
+            Platform.runLater(() -> {
+                final LoginWindow window = LoginWindow.acquire(prewarmEnabled);
+                window.open(flow.getAuthorizeUrl(), future, null);
+                future.whenComplete((userInfo, ex) -> Platform.runLater(window::close));
+            });
+        }
+
+        return future;
+    }
+
 }
@@ -1,23 +1,27 @@
 package com.github.eduramiba.javafx.auth0.rest.login;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.github.eduramiba.javafx.auth0.codegen.GenerateJSONCodec;
 import com.github.eduramiba.javafx.auth0.utils.Utils;
 import java.beans.ConstructorProperties;
 
+@GenerateJSONCodec
 public class Auth0OauthResponse {
 
     private final String accessToken;
     private final String idToken;
     private final String tokenType;
     private final long expiresIn;
+    private final String refreshToken;
 
     @JsonCreator
-    @ConstructorProperties({"access_token", "id_token", "token_type", "expires_in"})
-    public Auth0OauthResponse(String access_token, String id_token, String token_type, long expires_in) {
+    @ConstructorProperties({"access_token", "id_token", "token_type", "expires_in", "refresh_token"})
+    public Auth0OauthResponse(String access_token, String id_token, String token_type, long expires_in, String refresh_token) {
         this.accessToken = access_token;
         this.idToken = id_token;
         this.tokenType = token_type;
         this.expiresIn = expires_in;
+        this.refreshToken = refresh_token;
     }
 
     public String getAccessToken() {
@@ -36,6 +40,13 @@ public class Auth0OauthResponse {
         return expiresIn;
     }
 
+    /**
+     * @return Refresh token, only present when {@code offline_access} was requested, or when a refresh grant rotates it
+     */
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
     @Override
     public String toString() {
         return Utils.toJSONPrettyPrint(this);
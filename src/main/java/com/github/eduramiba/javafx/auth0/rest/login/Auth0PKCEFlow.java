@@ -5,16 +5,13 @@ import com.github.eduramiba.javafx.auth0.rest.ClientAuthenticationCredentials;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.SecureRandom;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.lang3.RandomStringUtils;
+import java.util.concurrent.CompletableFuture;
 import org.apache.commons.lang3.StringUtils;
-import org.jooq.lambda.Unchecked;
 
 /**
  * https://auth0.com/docs/flows/guides/auth-code-pkce/add-login-auth-code-pkce#example-authorization-url
@@ -29,12 +26,18 @@ public class Auth0PKCEFlow {
         private final String challenge;
         private final String state;
         private final String authorizeUrl;
+        private final String redirectUri;
 
         public FlowInfo(String verifier, String challenge, String state, String authorizeUrl) {
+            this(verifier, challenge, state, authorizeUrl, Auth0Settings.get().getRedirectUri());
+        }
+
+        public FlowInfo(String verifier, String challenge, String state, String authorizeUrl, String redirectUri) {
             this.verifier = verifier;
             this.challenge = challenge;
             this.state = state;
             this.authorizeUrl = authorizeUrl;
+            this.redirectUri = redirectUri;
         }
 
         public String getVerifier() {
@@ -53,53 +56,63 @@ public class Auth0PKCEFlow {
             return authorizeUrl;
         }
 
+        public String getRedirectUri() {
+            return redirectUri;
+        }
+
     }
 
-    private static final String DOMAIN = "your-domain.eu.auth0.com";
-    private static final String CLIENT_ID = "your_client_id";
-    private static final String REDIRECT_URI = "https://" + DOMAIN + "/mobile";
+    /**
+     * @return Signing keys of the tenant, used to verify id tokens
+     */
+    public static JWKSKeyStore getKeyStore() {
+        return Auth0Settings.get().getKeyStore();
+    }
 
     public static String createCodeVerifier() {
-        final SecureRandom sr = new SecureRandom();
-        final byte[] code = new byte[32];
-        sr.nextBytes(code);
-
-        return Base64.encodeBase64URLSafeString(code);
+        return PKCEFlowFactory.createCodeVerifier();
     }
 
     public static String createCodeChallenge(final String codeVerifier) {
-        final byte[] bytes = codeVerifier.getBytes(StandardCharsets.US_ASCII);
-        final MessageDigest md = Unchecked.supplier(() -> MessageDigest.getInstance("SHA-256")).get();
-        md.update(bytes, 0, bytes.length);
-
-        return Base64.encodeBase64URLSafeString(md.digest());
+        return PKCEFlowFactory.createCodeChallenge(codeVerifier);
     }
 
     public static String createAuthorizationURL(final String challenge, final String state) {
+        return createAuthorizationURL(challenge, state, Auth0Settings.get().getRedirectUri());
+    }
 
-        return "https://" + DOMAIN + "/authorize"
-                + "?client_id=" + CLIENT_ID
+    public static String createAuthorizationURL(final String challenge, final String state, final String redirectUri) {
+        final Auth0Settings settings = Auth0Settings.get();
+
+        return settings.getAuthorizeURI()
+                + "?client_id=" + settings.getClientId()
                 + "&response_type=code"
                 + "&code_challenge_method=S256"
                 + "&code_challenge=" + challenge
-                + "&scope=openid profile email"
+                + "&scope=openid profile email offline_access"
                 + "&state=" + state
-                + "&redirect_uri=" + REDIRECT_URI;
+                + "&redirect_uri=" + URLEncoder.encode(redirectUri, StandardCharsets.UTF_8);
     }
 
     public static FlowInfo createAuthorizationFlow() {
-        final String verifier = createCodeVerifier();
-        final String challenge = createCodeChallenge(verifier);
-        final String state = RandomStringUtils.randomAlphanumeric(8);
-        final String authorizationURL = createAuthorizationURL(challenge, state);
+        return createAuthorizationFlow(Auth0Settings.get().getRedirectUri());
+    }
 
-        return new FlowInfo(verifier, challenge, state, authorizationURL);
+    /**
+     * @param redirectUri Redirect URI for the flow, such as the one of a {@link LoopbackRedirectListener}
+     * @return New flow info
+     */
+    public static FlowInfo createAuthorizationFlow(final String redirectUri) {
+        final PKCEFlowFactory.PKCECodes codes = PKCEFlowFactory.take();
+        final String authorizationURL = createAuthorizationURL(codes.getChallenge(), codes.getState(), redirectUri);
+
+        return new FlowInfo(codes.getVerifier(), codes.getChallenge(), codes.getState(), authorizationURL, redirectUri);
     }
 
     public static Optional<UserInfo> checkURLForLoginSuccess(final FlowInfo flowInfo, final String url) throws IOException {
         final URI uri = URI.create(url);
 
-        if (url.startsWith(REDIRECT_URI)) {
+        if (url.startsWith(flowInfo.getRedirectUri())) {
             var fragmentParams = getQueryParams(uri);
 
             final String code = fragmentParams.get("code");
@@ -109,16 +122,10 @@ public class Auth0PKCEFlow {
                 final Auth0OauthResponse tokenInfo;
 
                 try (RESTAuth0Client client = buildAuth0Client(null)) {
-                    tokenInfo = client.getOauthToken(CLIENT_ID, code, flowInfo.getVerifier(), REDIRECT_URI);
-
-                    return JWTUtils.verifyToken(tokenInfo.getIdToken()).map(jwt -> {
-                        return UserInfo.builder()
-                                .jwtToken(tokenInfo.getIdToken())
-                                .email(jwt.getClaim("email").asString())
-                                .name(jwt.getClaim("name").asString())
-                                .avatarURL(jwt.getClaim("picture").asString())
-                                .build();
-                    });
+                    tokenInfo = client.getOauthToken(Auth0Settings.get().getClientId(), code, flowInfo.getVerifier(), flowInfo.getRedirectUri());
+
+                    //Blocking call anyway, wait for the signing keys if needed:
+                    return toUserInfoAsync(tokenInfo).join();
                 }
             }
         }
@@ -126,11 +133,83 @@ public class Auth0PKCEFlow {
         return Optional.empty();
     }
 
+    /**
+     * Same as {@link #checkURLForLoginSuccess(FlowInfo, String)} but the token exchange does not block the calling thread, so it can be called from the JavaFX Application Thread.
+     *
+     * @param flowInfo Flow info
+     * @param url Current URL
+     * @return Future with the user info if the URL is a successful login redirect, empty otherwise
+     */
+    public static CompletableFuture<Optional<UserInfo>> checkURLForLoginSuccessAsync(final FlowInfo flowInfo, final String url) {
+        if (url == null || !url.startsWith(flowInfo.getRedirectUri())) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        return exchangeCodeAsync(flowInfo, getQueryParams(URI.create(url)));
+    }
+
+    /**
+     * Exchanges the authorization code received in the redirect for tokens, without blocking the calling thread.
+     *
+     * @param flowInfo Flow info
+     * @param params Query parameters of the redirect
+     * @return Future with the user info, empty if the parameters don't contain a code for this flow
+     */
+    public static CompletableFuture<Optional<UserInfo>> exchangeCodeAsync(final FlowInfo flowInfo, final Map<String, String> params) {
+        final String code = params.get("code");
+        final String state = params.get("state");
+
+        if (!flowInfo.getState().equals(state) || StringUtils.isEmpty(code)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        final RESTAuth0Client client = buildAuth0Client(null);
+
+        return client.getOauthTokenAsync(Auth0Settings.get().getClientId(), code, flowInfo.getVerifier(), flowInfo.getRedirectUri())
+                .thenCompose(Auth0PKCEFlow::toUserInfoAsync)
+                .whenComplete((userInfo, ex) -> client.close());
+    }
+
+    /**
+     * Gets new tokens with the stored refresh token, without user interaction.
+     *
+     * @return Future with the refreshed user info, empty if there is no stored refresh token or the new id token is not valid
+     */
+    public static CompletableFuture<Optional<UserInfo>> refreshLoginAsync() {
+        final Optional<String> refreshToken = RefreshTokenStore.load();
+        if (refreshToken.isEmpty()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        final RESTAuth0Client client = buildAuth0Client(null);
+
+        return client.refreshOauthTokenAsync(Auth0Settings.get().getClientId(), refreshToken.get())
+                .thenCompose(Auth0PKCEFlow::toUserInfoAsync)
+                .whenComplete((userInfo, ex) -> client.close());
+    }
+
+    private static CompletableFuture<Optional<UserInfo>> toUserInfoAsync(final Auth0OauthResponse tokenInfo) {
+        //A new token, so on first start it waits for the signing keys instead of failing the login:
+        return JWTUtils.verifyTokenAsync(tokenInfo.getIdToken()).thenApply(verified -> verified.map(jwt -> {
+            //Only present on the first login or when the tenant rotates refresh tokens. Never kept from a response whose id token is not valid:
+            if (tokenInfo.getRefreshToken() != null) {
+                RefreshTokenStore.save(tokenInfo.getRefreshToken());
+            }
+
+            return UserInfo.builder()
+                    .jwtToken(tokenInfo.getIdToken())
+                    .email(jwt.getClaim("email").asString())
+                    .name(jwt.getClaim("name").asString())
+                    .avatarURL(jwt.getClaim("picture").asString())
+                    .build();
+        }));
+    }
+
     private static RESTAuth0Client buildAuth0Client(final String accessToken) {
-        return new RESTAuth0Client(URI.create("https://" + DOMAIN + "/"), accessToken != null ? new ClientAuthenticationCredentials("Bearer " + accessToken) : null);
+        return new RESTAuth0Client(Auth0Settings.get().getBaseURI(), accessToken != null ? new ClientAuthenticationCredentials("Bearer " + accessToken) : null);
     }
 
-    private static Map<String, String> getQueryParams(URI uri) {
+    static Map<String, String> getQueryParams(URI uri) {
         final Map<String, String> fragmentParams = new LinkedHashMap<>();
         final String query = uri.getQuery();
         if (query == null) {
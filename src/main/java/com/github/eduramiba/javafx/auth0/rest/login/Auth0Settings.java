@@ -0,0 +1,173 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import java.net.URI;
+import java.util.Objects;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Tenant the login flow talks to. Defaults come from system properties, so the app can point to another tenant or to a local stand-in server without code changes:
+ * <ul>
+ * <li>{@code auth0-domain}: tenant domain, the base URI is {@code https://<domain>/}</li>
+ * <li>{@code auth0-base-uri}: full base URI, overrides the domain (for example {@code http://127.0.0.1:8080/})</li>
+ * <li>{@code auth0-client-id}: client id of the application</li>
+ * <li>{@code auth0-redirect-uri}: redirect URI for the WebView login, {@code <base URI>mobile} by default</li>
+ * </ul>
+ */
+public class Auth0Settings {
+
+    public static final String DOMAIN_PROPERTY = "auth0-domain";
+    public static final String BASE_URI_PROPERTY = "auth0-base-uri";
+    public static final String CLIENT_ID_PROPERTY = "auth0-client-id";
+    public static final String REDIRECT_URI_PROPERTY = "auth0-redirect-uri";
+
+    private static final String DEFAULT_DOMAIN = "your-domain.eu.auth0.com";
+    private static final String DEFAULT_CLIENT_ID = "your_client_id";
+
+    private static volatile Auth0Settings current;
+
+    private final URI baseURI;
+    private final String clientId;
+    private final String redirectUri;
+
+    private JWKSKeyStore keyStore;
+
+    private Auth0Settings(URI baseURI, String clientId, String redirectUri) {
+        this.baseURI = baseURI;
+        this.clientId = clientId;
+        this.redirectUri = redirectUri;
+    }
+
+    /**
+     * @return Current settings, read from system properties on first use
+     */
+    public static Auth0Settings get() {
+        Auth0Settings settings = current;
+        if (settings == null) {
+            synchronized (Auth0Settings.class) {
+                if (current == null) {
+                    current = fromSystemProperties();
+                }
+                settings = current;
+            }
+        }
+
+        return settings;
+    }
+
+    /**
+     * Replaces the current settings, for example to point to a stand-in server in tests.
+     *
+     * @param settings New settings
+     */
+    public static void set(final Auth0Settings settings) {
+        current = Objects.requireNonNull(settings);
+        JWTUtils.clearTokenCache();
+    }
+
+    public static Auth0Settings fromSystemProperties() {
+        final Builder builder = builder()
+                .domain(System.getProperty(DOMAIN_PROPERTY, DEFAULT_DOMAIN))
+                .clientId(System.getProperty(CLIENT_ID_PROPERTY, DEFAULT_CLIENT_ID))
+                .redirectUri(System.getProperty(REDIRECT_URI_PROPERTY));
+
+        final String baseURI = StringUtils.trimToNull(System.getProperty(BASE_URI_PROPERTY));
+        if (baseURI != null) {
+            builder.baseURI(URI.create(baseURI));
+        }
+
+        return builder.build();
+    }
+
+    public URI getBaseURI() {
+        return baseURI;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getRedirectUri() {
+        return redirectUri;
+    }
+
+    public URI getAuthorizeURI() {
+        return baseURI.resolve("/authorize");
+    }
+
+    public URI getJWKSURI() {
+        return baseURI.resolve("/.well-known/jwks.json");
+    }
+
+    /**
+     * @return Expected {@code iss} claim of the id tokens
+     */
+    public String getIssuer() {
+        return baseURI.toString();
+    }
+
+    /**
+     * @return Signing keys of the tenant, created on first use. Only tenants served over HTTPS are cached on disk
+     */
+    public synchronized JWKSKeyStore getKeyStore() {
+        if (keyStore == null) {
+            keyStore = JWKSKeyStore.builder()
+                    .jwksURI(getJWKSURI())
+                    .issuer(getIssuer())
+                    .audience(clientId)
+                    .diskCacheEnabled("https".equals(baseURI.getScheme()))
+                    .build();
+        }
+
+        return keyStore;
+    }
+
+    @Override
+    public String toString() {
+        return "Auth0Settings{" + "baseURI=" + baseURI + ", clientId=" + clientId + ", redirectUri=" + redirectUri + "}";
+    }
+
+    public static class Builder {
+
+        private URI baseURI;
+        private String clientId;
+        private String redirectUri;
+
+        private Builder() {
+        }
+
+        public Builder domain(final String value) {
+            this.baseURI = URI.create("https://" + value + "/");
+            return this;
+        }
+
+        public Builder baseURI(final URI value) {
+            this.baseURI = value;
+            return this;
+        }
+
+        public Builder clientId(final String value) {
+            this.clientId = value;
+            return this;
+        }
+
+        public Builder redirectUri(final String value) {
+            this.redirectUri = value;
+            return this;
+        }
+
+        public Auth0Settings build() {
+            Objects.requireNonNull(baseURI, "baseURI");
+            Objects.requireNonNull(clientId, "clientId");
+
+            //The issuer claim always ends with a slash:
+            final URI base = baseURI.toString().endsWith("/") ? baseURI : URI.create(baseURI + "/");
+            final String redirect = StringUtils.isBlank(redirectUri) ? base.resolve("/mobile").toString() : redirectUri;
+
+            return new Auth0Settings(base, clientId, redirect);
+        }
+    }
+
+    public static Auth0Settings.Builder builder() {
+        return new Auth0Settings.Builder();
+    }
+}
@@ -1,10 +1,12 @@
 package com.github.eduramiba.javafx.auth0.rest.login;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.github.eduramiba.javafx.auth0.codegen.GenerateJSONCodec;
 import com.github.eduramiba.javafx.auth0.utils.Utils;
 import java.beans.ConstructorProperties;
 import java.net.URI;
 
+@GenerateJSONCodec
 public class Auth0UserInfo {
 
     private final String name;
@@ -0,0 +1,75 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.github.eduramiba.javafx.auth0.utils.Utils;
+import java.beans.ConstructorProperties;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Public signing keys of the tenant, as served by {@code /.well-known/jwks.json}.
+ */
+public class JSONWebKeySet {
+
+    private final List<JSONWebKey> keys;
+
+    @JsonCreator
+    @ConstructorProperties({"keys"})
+    public JSONWebKeySet(List<JSONWebKey> keys) {
+        this.keys = keys != null ? List.copyOf(keys) : Collections.emptyList();
+    }
+
+    public List<JSONWebKey> getKeys() {
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        return Utils.toJSONPrettyPrint(this);
+    }
+
+    public static class JSONWebKey {
+
+        private final String kty;
+        private final String kid;
+        private final String use;
+        private final String alg;
+        private final String n;
+        private final String e;
+
+        @JsonCreator
+        @ConstructorProperties({"kty", "kid", "use", "alg", "n", "e"})
+        public JSONWebKey(String kty, String kid, String use, String alg, String n, String e) {
+            this.kty = kty;
+            this.kid = kid;
+            this.use = use;
+            this.alg = alg;
+            this.n = n;
+            this.e = e;
+        }
+
+        public String getKty() {
+            return kty;
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        public String getUse() {
+            return use;
+        }
+
+        public String getAlg() {
+            return alg;
+        }
+
+        public String getN() {
+            return n;
+        }
+
+        public String getE() {
+            return e;
+        }
+    }
+}
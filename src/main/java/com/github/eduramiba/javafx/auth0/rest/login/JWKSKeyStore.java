@@ -0,0 +1,354 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.Verification;
+import static com.github.eduramiba.javafx.auth0.Constants.APP_HOME_FOLDER;
+import com.github.eduramiba.javafx.auth0.utils.Utils;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.codec.binary.Base64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Signing keys of a tenant, fetched from its JWKS endpoint and cached in memory and on disk.
+ * <p>
+ * A {@link JWTVerifier} is built once per key id, so steady-state verification is CPU only. When a token signed with an unknown key id shows up (first start or key rotation) the key set is fetched again in the
+ * background, at most once per {@code minRefetchIntervalMillis}. Verification never waits for the network: call {@link #refreshAsync()} at startup so keys are usually known before the first token is checked.
+ * Verification fails closed: once any key set is loaded, from disk or network, a token with an unknown key id is rejected.
+ * </p>
+ */
+public class JWKSKeyStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JWKSKeyStore.class);
+
+    private static final String CACHE_FOLDER = "jwks";
+    private static final String NO_KEY_ID = "";
+
+    private final URI jwksURI;
+    private final String issuer;
+    private final String audience;
+    private final long leewaySeconds;
+    private final long minRefetchIntervalMillis;
+    private final File cacheFile;
+
+    private final Map<String, JWTVerifier> verifiers = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Void>> inFlightFetch = new AtomicReference<>();
+
+    private volatile boolean diskCacheLoaded = false;
+    private volatile long lastFetchMillis = 0;
+
+    private JWKSKeyStore(URI jwksURI, String issuer, String audience, long leewaySeconds, long minRefetchIntervalMillis, File cacheFile) {
+        this.jwksURI = jwksURI;
+        this.issuer = issuer;
+        this.audience = audience;
+        this.leewaySeconds = leewaySeconds;
+        this.minRefetchIntervalMillis = minRefetchIntervalMillis;
+        this.cacheFile = cacheFile;
+    }
+
+    public URI getJWKSURI() {
+        return jwksURI;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public String getAudience() {
+        return audience;
+    }
+
+    /**
+     * Verifies signature, issuer, audience and time claims of the token. Never touches the network, an unknown key id starts a background fetch of the key set.
+     *
+     * @param token Encoded token
+     * @return Decoded and verified token
+     * @throws SigningKeyUnavailableException If no key set is loaded yet, neither from disk nor from the network (first start while offline or with the fetch in progress). The token can't be trusted
+     * @throws JWTVerificationException If the token is malformed, not valid or signed with a key that is not in the loaded key set
+     */
+    public DecodedJWT verify(final String token) {
+        final DecodedJWT jwt = JWT.decode(token);
+
+        final Optional<JWTVerifier> verifier = getVerifier(jwt.getKeyId());
+        if (verifier.isEmpty()) {
+            final CompletableFuture<Void> fetch = refreshAsync();
+            if (!hasKeys()) {
+                throw new SigningKeyUnavailableException(jwt.getKeyId(), fetch);
+            }
+
+            //Possibly a rotated key, rejected now and accepted by a later check once the refetch finishes:
+            throw new JWTVerificationException("Token signed with unknown key id: " + jwt.getKeyId());
+        }
+
+        return verifier.get().verify(jwt);
+    }
+
+    /**
+     * @param keyId Key id of the token header, null if the token has none
+     * @return Verifier for the key if it is already known, never touches the network
+     */
+    public Optional<JWTVerifier> getVerifier(final String keyId) {
+        loadDiskCache();
+
+        return Optional.ofNullable(verifiers.get(keyId != null ? keyId : NO_KEY_ID));
+    }
+
+    /**
+     * @return Whether a key set was loaded from the disk cache or the network
+     */
+    public boolean hasKeys() {
+        loadDiskCache();
+
+        return !verifiers.isEmpty();
+    }
+
+    /**
+     * Fetches the key set again in the background, unless a fetch is in flight or the last one was less than {@code minRefetchIntervalMillis} ago.
+     *
+     * @return Future completed when the fetch finishes, or already completed if it was skipped
+     */
+    public CompletableFuture<Void> refreshAsync() {
+        final CompletableFuture<Void> inFlight = inFlightFetch.get();
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (lastFetchMillis != 0 && now - lastFetchMillis < minRefetchIntervalMillis) {
+            LOG.debug("Skipping signing keys fetch, last one was {} ms ago", now - lastFetchMillis);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<Void> own = new CompletableFuture<>();
+        if (!inFlightFetch.compareAndSet(null, own)) {
+            final CompletableFuture<Void> other = inFlightFetch.get();
+            return other != null ? other : CompletableFuture.completedFuture(null);
+        }
+        lastFetchMillis = now;
+
+        LOG.debug("Fetching signing keys from {}", jwksURI);
+        try {
+            final RESTAuth0Client client = new RESTAuth0Client(jwksURI.resolve("/"), null);
+            client.getJWKSAsync(jwksURI).whenComplete((jwks, ex) -> {
+                client.close();
+                try {
+                    if (ex != null) {
+                        LOG.warn("Error fetching signing keys from {}", jwksURI, ex);
+                    } else {
+                        loadDiskCache();
+                        update(jwks);
+                        storeDiskCache(jwks);
+                    }
+                } finally {
+                    inFlightFetch.set(null);
+                    own.complete(null);
+                }
+            });
+        } catch (RuntimeException ex) {
+            inFlightFetch.set(null);
+            own.completeExceptionally(ex);
+        }
+
+        return own;
+    }
+
+    private void update(final JSONWebKeySet jwks) {
+        final Map<String, JWTVerifier> updated = new HashMap<>();
+        for (JSONWebKeySet.JSONWebKey key : jwks.getKeys()) {
+            buildVerifier(key).ifPresent(verifier -> updated.put(key.getKid() != null ? key.getKid() : NO_KEY_ID, verifier));
+        }
+
+        if (updated.isEmpty()) {
+            LOG.warn("No usable signing keys in {}", jwksURI);
+            return;
+        }
+
+        //Keys removed from the set are no longer trusted:
+        verifiers.putAll(updated);
+        verifiers.keySet().retainAll(updated.keySet());
+
+        LOG.debug("Loaded {} signing keys for {}", updated.size(), jwksURI);
+    }
+
+    private Optional<JWTVerifier> buildVerifier(final JSONWebKeySet.JSONWebKey key) {
+        if (!"RSA".equals(key.getKty()) || (key.getUse() != null && !"sig".equals(key.getUse())) || key.getN() == null || key.getE() == null) {
+            LOG.debug("Ignoring unsupported signing key {}", key.getKid());
+            return Optional.empty();
+        }
+
+        final RSAPublicKey publicKey;
+        try {
+            publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                    new BigInteger(1, Base64.decodeBase64(key.getN())),
+                    new BigInteger(1, Base64.decodeBase64(key.getE()))
+            ));
+        } catch (GeneralSecurityException ex) {
+            LOG.warn("Invalid signing key {}", key.getKid(), ex);
+            return Optional.empty();
+        }
+
+        final Algorithm algorithm;
+        final String alg = key.getAlg() != null ? key.getAlg() : "RS256";
+        switch (alg) {
+            case "RS256":
+                algorithm = Algorithm.RSA256(publicKey, null);
+                break;
+            case "RS384":
+                algorithm = Algorithm.RSA384(publicKey, null);
+                break;
+            case "RS512":
+                algorithm = Algorithm.RSA512(publicKey, null);
+                break;
+            default:
+                LOG.debug("Ignoring signing key {} with unsupported algorithm {}", key.getKid(), alg);
+                return Optional.empty();
+        }
+
+        final Verification verification = JWT.require(algorithm).acceptLeeway(leewaySeconds);
+        if (issuer != null) {
+            verification.withIssuer(issuer);
+        }
+        if (audience != null) {
+            verification.withAudience(audience);
+        }
+
+        return Optional.of(verification.build());
+    }
+
+    private void loadDiskCache() {
+        if (diskCacheLoaded) {
+            return;
+        }
+
+        synchronized (this) {
+            if (diskCacheLoaded) {
+                return;
+            }
+
+            if (cacheFile != null && cacheFile.isFile()) {
+                try {
+                    update(Utils.parseJSON(Files.readAllBytes(cacheFile.toPath()), JSONWebKeySet.class));
+                } catch (IOException | RuntimeException ex) {
+                    LOG.warn("Error reading cached signing keys from {}", cacheFile, ex);
+                }
+            }
+
+            diskCacheLoaded = true;
+        }
+    }
+
+    private void storeDiskCache(final JSONWebKeySet jwks) {
+        if (cacheFile == null) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+
+            final File tempFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+            Files.write(tempFile.toPath(), Utils.toJSONBytes(jwks));
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ex) {
+            LOG.warn("Error caching signing keys to {}", cacheFile, ex);
+        }
+    }
+
+    private static File defaultCacheFile(final URI jwksURI) {
+        final String name = jwksURI.getHost() + (jwksURI.getPort() != -1 ? "_" + jwksURI.getPort() : "") + ".json";
+
+        return new File(new File(new File(System.getProperty("user.home"), APP_HOME_FOLDER), CACHE_FOLDER), name);
+    }
+
+    public static class Builder {
+
+        private URI jwksURI;
+        private String issuer;
+        private String audience;
+        private long leewaySeconds = 60;
+        private long minRefetchIntervalMillis = TimeUnit.MINUTES.toMillis(1);
+        private boolean diskCacheEnabled = true;
+        private File cacheFile;
+
+        private Builder() {
+        }
+
+        public Builder jwksURI(final URI value) {
+            this.jwksURI = value;
+            return this;
+        }
+
+        /**
+         * @param value Expected {@code iss} claim, not checked if null
+         * @return This builder
+         */
+        public Builder issuer(final String value) {
+            this.issuer = value;
+            return this;
+        }
+
+        /**
+         * @param value Expected {@code aud} claim (the client id for id tokens), not checked if null
+         * @return This builder
+         */
+        public Builder audience(final String value) {
+            this.audience = value;
+            return this;
+        }
+
+        public Builder leewaySeconds(final long value) {
+            this.leewaySeconds = value;
+            return this;
+        }
+
+        public Builder minRefetchIntervalMillis(final long value) {
+            this.minRefetchIntervalMillis = value;
+            return this;
+        }
+
+        public Builder diskCacheEnabled(final boolean value) {
+            this.diskCacheEnabled = value;
+            return this;
+        }
+
+        /**
+         * @param value File for the disk cache, by default under the app home folder and named after the JWKS host
+         * @return This builder
+         */
+        public Builder cacheFile(final File value) {
+            this.cacheFile = value;
+            return this;
+        }
+
+        public JWKSKeyStore build() {
+            Objects.requireNonNull(jwksURI, "jwksURI");
+
+            final File file = diskCacheEnabled ? (cacheFile != null ? cacheFile : defaultCacheFile(jwksURI)) : null;
+            return new JWKSKeyStore(jwksURI, issuer, audience, leewaySeconds, minRefetchIntervalMillis, file);
+        }
+    }
+
+    public static JWKSKeyStore.Builder builder() {
+        return new JWKSKeyStore.Builder();
+    }
+}
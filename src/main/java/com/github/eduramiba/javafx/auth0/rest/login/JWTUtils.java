@@ -1,38 +1,221 @@
 package com.github.eduramiba.javafx.auth0.rest.login;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import static com.github.eduramiba.javafx.auth0.Constants.PREF_VERIFIED_TOKEN;
+import com.github.eduramiba.javafx.auth0.preferences.AppPreferences;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Verification of id tokens against the signing keys of {@link #getKeyStore()}, with an in-memory cache of results.
+ * <p>
+ * Verification fails closed: a token is only returned once its signature, issuer and audience were checked. The only exception is the first start of a session while no signing keys can be loaded (offline): the
+ * token is then accepted if it is exactly the last one fully verified in an earlier run, which is remembered as an HMAC keyed by {@link RefreshTokenStore}'s local key.
+ * </p>
+ */
 public class JWTUtils {
 
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(JWTUtils.class);
 
     private static final int MIN_VALID_SECONDS_LEFT = 60 * 10;
+    private static final int MAX_CACHED_TOKENS = 16;
 
+    private static volatile JWKSKeyStore keyStore;
+
+    //Verified tokens, so repeated checks of the same token are a clock comparison:
+    private static final Map<String, VerifiedToken> TOKEN_CACHE = new ConcurrentHashMap<>();
+
+    private static class VerifiedToken {
+
+        private final Optional<DecodedJWT> jwt;
+        private final long expiresAtMillis;
+        private final long validUntilMillis;
+        private final CompletableFuture<Void> keysLoaded;
+        private volatile boolean expiryLogged = false;
+
+        public VerifiedToken(Optional<DecodedJWT> jwt, long expiresAtMillis) {
+            this(jwt, expiresAtMillis, null);
+        }
+
+        /**
+         * @param keysLoaded Not null when the signature could not be checked because no signing keys are loaded, the result is dropped when they are
+         */
+        public VerifiedToken(Optional<DecodedJWT> jwt, long expiresAtMillis, CompletableFuture<Void> keysLoaded) {
+            this.jwt = jwt;
+            this.expiresAtMillis = expiresAtMillis;
+            this.validUntilMillis = expiresAtMillis - MIN_VALID_SECONDS_LEFT * 1000L;
+            this.keysLoaded = keysLoaded;
+        }
+    }
+
+    /**
+     * Sets the key store used to verify token signatures, for example one pointing to a local JWKS endpoint. Defaults to {@link Auth0PKCEFlow#getKeyStore()}.
+     *
+     * @param store Key store, null to go back to the default one
+     */
+    public static void setKeyStore(final JWKSKeyStore store) {
+        keyStore = store;
+        TOKEN_CACHE.clear();
+    }
+
+    public static JWKSKeyStore getKeyStore() {
+        final JWKSKeyStore store = keyStore;
+        return store != null ? store : Auth0PKCEFlow.getKeyStore();
+    }
+
+    /**
+     * Verifies a token without blocking. While no signing keys are loaded it's empty, unless the token is the last one verified in an earlier run.
+     *
+     * @param token Encoded token
+     * @return Verified token, empty if not valid, expired or near to expiry
+     */
     public static Optional<DecodedJWT> verifyToken(final String token) {
         if (StringUtils.isBlank(token)) {
             LOG.info("Empty token??");
             return Optional.empty();
         }
 
-        final DecodedJWT jwt = JWT.decode(token);
+        final VerifiedToken verified = getVerified(token);
+        if (verified == null) {
+            return Optional.empty();
+        }
+
+        //Expired or near to expiry:
+        if (System.currentTimeMillis() >= verified.validUntilMillis) {
+            if (!verified.expiryLogged) {
+                verified.expiryLogged = true;
+                LOG.info("Token expired: {}", Instant.ofEpochMilli(verified.expiresAtMillis));
+            }
+            return Optional.empty();
+        }
+
+        return verified.jwt;
+    }
+
+    /**
+     * Same as {@link #verifyToken(String)}, but when no signing keys are loaded yet it waits for the background key set fetch before answering. For new tokens, such as the one of a login that just finished.
+     *
+     * @param token Encoded token
+     * @return Future with the verified token, empty if not valid, expired, near to expiry or the signing keys could not be loaded
+     */
+    public static CompletableFuture<Optional<DecodedJWT>> verifyTokenAsync(final String token) {
+        if (StringUtils.isBlank(token)) {
+            return CompletableFuture.completedFuture(verifyToken(token));
+        }
+
+        final VerifiedToken verified = getVerified(token);
+        if (verified != null && verified.jwt.isEmpty() && verified.keysLoaded != null) {
+            return verified.keysLoaded.handle((result, ex) -> {
+                //Don't depend on the order of the cache eviction callback:
+                TOKEN_CACHE.remove(token, verified);
+                return verifyToken(token);
+            });
+        }
+
+        return CompletableFuture.completedFuture(verifyToken(token));
+    }
+
+    /**
+     * Forgets verified tokens, for example after logout.
+     */
+    public static void clearTokenCache() {
+        TOKEN_CACHE.clear();
+        AppPreferences.removeGlobalPreference(PREF_VERIFIED_TOKEN);
+    }
+
+    private static VerifiedToken getVerified(final String token) {
+        VerifiedToken verified = TOKEN_CACHE.get(token);
+        if (verified == null) {
+            verified = verify(token);
+            if (verified == null) {
+                return null;
+            }
+
+            if (TOKEN_CACHE.size() >= MAX_CACHED_TOKENS) {
+                TOKEN_CACHE.clear();
+            }
+            TOKEN_CACHE.put(token, verified);
+
+            if (verified.keysLoaded != null) {
+                //Verify the signature for real once the key set fetch finishes:
+                final VerifiedToken unverified = verified;
+                verified.keysLoaded.whenComplete((result, ex) -> TOKEN_CACHE.remove(token, unverified));
+            }
+        }
+
+        return verified;
+    }
 
-        if (jwt != null) {
-            final Instant now = Instant.now();
-            final Instant expiresAt = Instant.ofEpochMilli(jwt.getExpiresAt().getTime());
+    private static VerifiedToken verify(final String token) {
+        final DecodedJWT jwt;
+        try {
+            jwt = getKeyStore().verify(token);
+        } catch (TokenExpiredException ex) {
+            final Date expiresAt = JWT.decode(token).getExpiresAt();
+            return new VerifiedToken(Optional.empty(), expiresAt != null ? expiresAt.getTime() : 0);
+        } catch (SigningKeyUnavailableException ex) {
+            final DecodedJWT decoded = JWT.decode(token);
+            if (decoded.getExpiresAt() == null) {
+                LOG.warn("Token without expiry");
+                return null;
+            }
 
-            //Expired or near to expiry:
-            if (now.plusSeconds(MIN_VALID_SECONDS_LEFT).isAfter(expiresAt)) {
-                LOG.info("Token expired: {}", expiresAt);
-                return Optional.empty();
-            } else {
-                return Optional.of(jwt);
+            //All claims of this exact token were checked in an earlier run, so a restored session survives an offline start:
+            if (isLastVerified(token)) {
+                LOG.debug("Signing keys not loaded yet, using the previously verified token");
+                return new VerifiedToken(Optional.of(decoded), decoded.getExpiresAt().getTime(), ex.getKeysLoaded());
             }
-        } else {
+
+            LOG.info("Signing keys not loaded yet, token {} can't be verified", ex.getKeyId());
+            return new VerifiedToken(Optional.empty(), decoded.getExpiresAt().getTime(), ex.getKeysLoaded());
+        } catch (JWTVerificationException ex) {
+            //Not cached, the signing key may be known after a refetch:
+            LOG.warn("Invalid token: {}", ex.getMessage());
+            return null;
+        }
+
+        if (jwt.getExpiresAt() == null) {
+            LOG.warn("Token without expiry");
+            return null;
+        }
+
+        rememberVerified(token);
+        return new VerifiedToken(Optional.of(jwt), jwt.getExpiresAt().getTime());
+    }
+
+    private static void rememberVerified(final String token) {
+        signature(token).ifPresent(signature -> AppPreferences.saveGlobalPreference(PREF_VERIFIED_TOKEN, signature));
+    }
+
+    private static boolean isLastVerified(final String token) {
+        final Optional<String> stored = AppPreferences.getGlobalPreference(PREF_VERIFIED_TOKEN, value -> value);
+        final Optional<String> signature = signature(token);
+
+        return stored.isPresent() && signature.isPresent()
+                && MessageDigest.isEqual(stored.get().getBytes(StandardCharsets.US_ASCII), signature.get().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Optional<String> signature(final String token) {
+        try {
+            //Keyed, so editing the preferences is not enough to make a forged token trusted:
+            return Optional.of(new HmacUtils(HmacAlgorithms.HMAC_SHA_256, RefreshTokenStore.getKey().getEncoded()).hmacHex(token));
+        } catch (IOException | GeneralSecurityException ex) {
+            LOG.warn("Error signing verified token", ex);
             return Optional.empty();
         }
     }
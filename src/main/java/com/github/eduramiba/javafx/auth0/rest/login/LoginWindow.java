@@ -0,0 +1,211 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import com.github.eduramiba.javafx.auth0.Launcher;
+import com.github.eduramiba.javafx.auth0.UserInfo;
+import com.github.eduramiba.javafx.auth0.utils.I18N;
+import java.net.CookieHandler;
+import java.net.CookieManager;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.concurrent.Worker;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.web.WebEngine;
+import javafx.scene.web.WebView;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Login stage with its WebView. When pre-warming is enabled, one hidden window is created at idle after startup and reused by every login, so the WebKit initialization cost is not paid when the user clicks login.
+ * <p>
+ * After each use the page is cleared to {@code about:blank} and cookies are handled according to the {@link Auth0Login.CookiePolicy}. The reusable window is dropped when it has been idle for a while after a login, or
+ * on {@link #release()}. All methods must be called from the JavaFX Application Thread unless noted otherwise.
+ * </p>
+ * <p>
+ * With {@link Auth0Login.CookiePolicy#CLEAR} the login WebView needs a cookie store the app can empty: if no JVM-wide cookie handler exists yet when the first window is created, a {@link CookieManager} owned by this
+ * class is installed in its place (WebView would otherwise install its own, which can't be cleared). A handler installed by someone else is never replaced nor cleared.
+ * </p>
+ */
+class LoginWindow {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoginWindow.class);
+
+    private static final int WINDOW_WIDTH = 400;
+    private static final int WINDOW_HEIGHT = 550;
+
+    private static final Duration PREWARM_DELAY = Duration.seconds(3);
+    private static final Duration IDLE_RELEASE_DELAY = Duration.minutes(10);
+
+    private static final String BLANK_PAGE = "about:blank";
+
+    private static Image icon;
+    private static LoginWindow reusable;
+    private static PauseTransition idleRelease;
+    private static CookieManager ownCookieManager;
+    private static boolean cookieWarningLogged = false;
+
+    private final Stage stage;
+    private final WebView webView;
+
+    private boolean inUse = false;
+    private ChangeListener<Worker.State> stateListener;
+
+    private LoginWindow() {
+        if (Auth0Login.getCookiePolicy() == Auth0Login.CookiePolicy.CLEAR) {
+            installOwnCookieManager();
+        }
+        webView = new WebView();
+
+        stage = new Stage();
+        stage.setWidth(WINDOW_WIDTH);
+        stage.setHeight(WINDOW_HEIGHT);
+        stage.getIcons().add(getIcon());
+        stage.titleProperty().set(I18N.getBundle("messages").getString("app.title.login"));
+        stage.initModality(Modality.APPLICATION_MODAL);
+        stage.setScene(new Scene(webView));
+    }
+
+    private static Image getIcon() {
+        if (icon == null) {
+            icon = new Image(Launcher.class.getResourceAsStream("/icon.png"));
+        }
+
+        return icon;
+    }
+
+    /**
+     * Creates the reusable window at idle, after a short delay. Can be called from any thread.
+     */
+    static void prewarm() {
+        Platform.runLater(() -> {
+            final PauseTransition delay = new PauseTransition(PREWARM_DELAY);
+            delay.setOnFinished(event -> {
+                if (reusable == null) {
+                    LOG.debug("Pre-warming login window");
+                    reusable = new LoginWindow();
+                    reusable.webView.getEngine().load(BLANK_PAGE);
+                }
+            });
+            delay.play();
+        });
+    }
+
+    /**
+     * @param reuse Whether to use the pre-warmed window
+     * @return A window that is not in use
+     */
+    static LoginWindow acquire(final boolean reuse) {
+        if (!reuse) {
+            return new LoginWindow();
+        }
+
+        cancelIdleRelease();
+        if (reusable == null) {
+            reusable = new LoginWindow();
+        }
+
+        //Only one login at a time is expected, but never share a window:
+        return reusable.inUse ? new LoginWindow() : reusable;
+    }
+
+    /**
+     * Drops the reusable window so its native WebView memory can be freed. Can be called from any thread.
+     */
+    static void release() {
+        Platform.runLater(() -> {
+            cancelIdleRelease();
+            if (reusable != null && !reusable.inUse) {
+                LOG.info("Releasing pre-warmed login window");
+                reusable.webView.getEngine().load(BLANK_PAGE);
+                reusable = null;
+            }
+        });
+    }
+
+    WebEngine getEngine() {
+        return webView.getEngine();
+    }
+
+    void open(final String url, final CompletableFuture<Optional<UserInfo>> future, final ChangeListener<Worker.State> listener) {
+        inUse = true;
+
+        stateListener = listener;
+        if (listener != null) {
+            getEngine().getLoadWorker().stateProperty().addListener(listener);
+        }
+
+        stage.setOnHidden(event -> {
+            if (!future.isDone()) {
+                future.complete(Optional.empty());
+            }
+            reset();
+        });
+
+        getEngine().load(url);
+        stage.centerOnScreen();
+        stage.show();
+    }
+
+    void close() {
+        stage.close();
+    }
+
+    private void reset() {
+        if (stateListener != null) {
+            getEngine().getLoadWorker().stateProperty().removeListener(stateListener);
+            stateListener = null;
+        }
+        stage.setOnHidden(null);
+
+        getEngine().load(BLANK_PAGE);
+        if (Auth0Login.getCookiePolicy() == Auth0Login.CookiePolicy.CLEAR) {
+            clearCookies();
+        }
+
+        inUse = false;
+
+        if (this == reusable) {
+            scheduleIdleRelease();
+        }
+    }
+
+    private static void scheduleIdleRelease() {
+        cancelIdleRelease();
+
+        idleRelease = new PauseTransition(IDLE_RELEASE_DELAY);
+        idleRelease.setOnFinished(event -> {
+            idleRelease = null;
+            release();
+        });
+        idleRelease.play();
+    }
+
+    private static void cancelIdleRelease() {
+        if (idleRelease != null) {
+            idleRelease.stop();
+            idleRelease = null;
+        }
+    }
+
+    private static void installOwnCookieManager() {
+        if (ownCookieManager == null && CookieHandler.getDefault() == null) {
+            ownCookieManager = new CookieManager();
+            CookieHandler.setDefault(ownCookieManager);
+        }
+    }
+
+    private static void clearCookies() {
+        if (ownCookieManager != null && CookieHandler.getDefault() == ownCookieManager) {
+            ownCookieManager.getCookieStore().removeAll();
+        } else if (!cookieWarningLogged) {
+            cookieWarningLogged = true;
+            LOG.warn("Login cookies can't be cleared, the cookie handler was not installed by the login window");
+        }
+    }
+}
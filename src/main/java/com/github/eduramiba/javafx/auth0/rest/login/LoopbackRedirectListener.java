@@ -0,0 +1,219 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Minimal HTTP listener on {@code 127.0.0.1} and an ephemeral port, used as OAuth redirect URI. It receives the authorization code directly, so the login can happen in the system browser or in a WebView without
+ * inspecting its location.
+ * <p>
+ * Only callbacks carrying the {@code state} of the login flow are accepted, or an {@code error} without a different {@code state}. Any other local request is answered with an error and the listener keeps waiting, so a
+ * stray request can't end the login. Each connection has a couple of seconds to send its request line, so an idle connection (like a speculative one opened by the browser) can't stall the listener. The
+ * listener closes itself right after the accepted callback. The tenant must allow {@code http://127.0.0.1} loopback callback URLs.
+ * </p>
+ */
+public class LoopbackRedirectListener implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoopbackRedirectListener.class);
+
+    private static final String CALLBACK_PATH = "/callback";
+    private static final int MAX_REQUEST_BYTES = 8 * 1024;
+    private static final int READ_TIMEOUT_MILLIS = 2000;
+
+    private static final String RESPONSE_PAGE = "<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Login</title></head>"
+            + "<body style=\"font-family: sans-serif; text-align: center; margin-top: 4em\"><p>Login complete, you can close this window.</p></body></html>";
+
+    private final ServerSocketChannel serverChannel;
+    private final String redirectURI;
+    private final CompletableFuture<Map<String, String>> callback = new CompletableFuture<>();
+
+    private volatile String expectedState;
+
+    private LoopbackRedirectListener(ServerSocketChannel serverChannel) throws IOException {
+        this.serverChannel = serverChannel;
+        this.redirectURI = "http://127.0.0.1:" + ((InetSocketAddress) serverChannel.getLocalAddress()).getPort() + CALLBACK_PATH;
+    }
+
+    /**
+     * Binds the listener without accepting connections yet, so its {@link #getRedirectURI()} can be used to create the login flow. Call {@link #start(String)} next.
+     *
+     * @return Bound listener
+     * @throws IOException If the loopback port can't be bound
+     */
+    public static LoopbackRedirectListener bind() throws IOException {
+        final ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+
+        final LoopbackRedirectListener listener = new LoopbackRedirectListener(channel);
+        listener.callback.whenComplete((params, ex) -> listener.close());
+        return listener;
+    }
+
+    /**
+     * Starts accepting connections in a daemon thread.
+     *
+     * @param expectedState {@code state} parameter of the login flow, callbacks without it are rejected
+     */
+    public void start(final String expectedState) {
+        if (expectedState == null || expectedState.isEmpty()) {
+            throw new IllegalArgumentException("Expected state is required");
+        }
+        this.expectedState = expectedState;
+
+        final Thread thread = new Thread(this::acceptLoop, "Login redirect listener");
+        thread.setDaemon(true);
+        thread.start();
+
+        LOG.debug("Listening for login redirect on {}", redirectURI);
+    }
+
+    public String getRedirectURI() {
+        return redirectURI;
+    }
+
+    /**
+     * @return Future with the query parameters of the callback request. Completing or cancelling it closes the listener
+     */
+    public CompletableFuture<Map<String, String>> getCallback() {
+        return callback;
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverChannel.close();
+        } catch (IOException ex) {
+            LOG.debug("Error closing login redirect listener", ex);
+        }
+
+        callback.cancel(false);
+    }
+
+    private void acceptLoop() {
+        while (!callback.isDone()) {
+            try (SocketChannel client = serverChannel.accept()) {
+                handle(client);
+            } catch (ClosedChannelException ex) {
+                return;
+            } catch (SocketTimeoutException ex) {
+                LOG.debug("Login redirect connection sent no request in time");
+            } catch (IOException | RuntimeException ex) {
+                LOG.warn("Error handling login redirect request", ex);
+            }
+        }
+    }
+
+    private void handle(final SocketChannel client) throws IOException {
+        final String requestLine = readRequestLine(client);
+        final String[] parts = requestLine != null ? requestLine.split(" ") : new String[0];
+        if (parts.length < 2 || !"GET".equals(parts[0])) {
+            respond(client, "400 Bad Request", "");
+            return;
+        }
+
+        final URI uri;
+        final Map<String, String> params;
+        try {
+            uri = URI.create(parts[1]);
+            params = Auth0PKCEFlow.getQueryParams(uri);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            //Malformed target or a query parameter without value:
+            respond(client, "400 Bad Request", "");
+            return;
+        }
+
+        if (!CALLBACK_PATH.equals(uri.getPath())) {
+            //Browsers also ask for /favicon.ico and similar:
+            respond(client, "404 Not Found", "");
+            return;
+        }
+
+        if (!isExpectedCallback(params)) {
+            //Not the redirect of this login, keep waiting for it:
+            LOG.warn("Ignoring login redirect callback with unexpected state");
+            respond(client, "400 Bad Request", "");
+            return;
+        }
+
+        if (params.containsKey("error")) {
+            LOG.warn("Login redirect returned error {}: {}", params.get("error"), params.get("error_description"));
+        }
+
+        respond(client, "200 OK", RESPONSE_PAGE);
+        callback.complete(params);
+    }
+
+    private boolean isExpectedCallback(final Map<String, String> params) {
+        final String state = params.get("state");
+        if (expectedState.equals(state)) {
+            return true;
+        }
+
+        //Errors may come without state, but never accept one meant for another login:
+        return state == null && params.containsKey("error");
+    }
+
+    private static String readRequestLine(final SocketChannel client) throws IOException {
+        final byte[] buffer = new byte[MAX_REQUEST_BYTES];
+        int position = 0;
+
+        //Reading through the socket stream honors SO_TIMEOUT, unlike the channel. The deadline covers the whole line, so a client sending a byte at a time can't hold the listener either:
+        final InputStream input = client.socket().getInputStream();
+        final long deadline = System.currentTimeMillis() + READ_TIMEOUT_MILLIS;
+
+        while (position < buffer.length) {
+            final long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Request line not received in time");
+            }
+            client.socket().setSoTimeout((int) remaining);
+
+            final int read = input.read(buffer, position, buffer.length - position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+
+            final String received = new String(buffer, 0, position, StandardCharsets.ISO_8859_1);
+            final int end = received.indexOf("\r\n");
+            if (end >= 0) {
+                return received.substring(0, end);
+            }
+        }
+
+        return null;
+    }
+
+    private static void respond(final SocketChannel client, final String status, final String body) throws IOException {
+        final byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        final String head = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: text/html; charset=utf-8\r\n"
+                + "Content-Length: " + bodyBytes.length + "\r\n"
+                + "Cache-Control: no-store\r\n"
+                + "Connection: close\r\n\r\n";
+
+        final ByteBuffer response = ByteBuffer.allocate(head.length() + bodyBytes.length);
+        response.put(head.getBytes(StandardCharsets.ISO_8859_1)).put(bodyBytes).flip();
+        while (response.hasRemaining()) {
+            client.write(response);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.codec.binary.Base64;
+import org.jooq.lambda.Unchecked;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the PKCE code verifier, code challenge and state of login flows.
+ * <p>
+ * Uses one shared {@link SecureRandom}, seeded in the background by {@link #prewarm()}, and a SHA-256 digest per thread. A small pool of ready codes is refilled in the background, so opening the login window never waits
+ * for entropy or provider lookups.
+ * </p>
+ */
+public class PKCEFlowFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PKCEFlowFactory.class);
+
+    private static final int POOL_SIZE = 2;
+    private static final int VERIFIER_BYTES = 32;
+    private static final int STATE_BYTES = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(Unchecked.supplier(() -> MessageDigest.getInstance("SHA-256")));
+
+    private static final Queue<PKCECodes> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean REFILLING = new AtomicBoolean(false);
+
+    private static final ExecutorService REFILL_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "PKCE pool refill");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public static class PKCECodes {
+
+        private final String verifier;
+        private final String challenge;
+        private final String state;
+
+        public PKCECodes(String verifier, String challenge, String state) {
+            this.verifier = verifier;
+            this.challenge = challenge;
+            this.state = state;
+        }
+
+        public String getVerifier() {
+            return verifier;
+        }
+
+        public String getChallenge() {
+            return challenge;
+        }
+
+        public String getState() {
+            return state;
+        }
+    }
+
+    /**
+     * Seeds the random generator and fills the pool in the background. Meant to be called once the app is idle after startup.
+     */
+    public static void prewarm() {
+        refill();
+    }
+
+    /**
+     * @return Ready codes from the pool, or new ones if the pool is empty. Each codes instance is only handed out once
+     */
+    public static PKCECodes take() {
+        PKCECodes codes = POOL.poll();
+        if (codes == null) {
+            LOG.debug("PKCE pool empty, creating codes in the calling thread");
+            codes = create();
+        }
+
+        refill();
+        return codes;
+    }
+
+    public static PKCECodes create() {
+        final String verifier = createCodeVerifier();
+        return new PKCECodes(verifier, createCodeChallenge(verifier), randomURLSafeString(STATE_BYTES));
+    }
+
+    public static String createCodeVerifier() {
+        return randomURLSafeString(VERIFIER_BYTES);
+    }
+
+    public static String createCodeChallenge(final String codeVerifier) {
+        final MessageDigest md = SHA_256.get();
+        md.reset();
+
+        return Base64.encodeBase64URLSafeString(md.digest(codeVerifier.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String randomURLSafeString(final int bytes) {
+        final byte[] code = new byte[bytes];
+        RANDOM.nextBytes(code);
+
+        return Base64.encodeBase64URLSafeString(code);
+    }
+
+    private static void refill() {
+        if (!REFILLING.compareAndSet(false, true)) {
+            return;
+        }
+
+        REFILL_EXECUTOR.execute(() -> {
+            try {
+                while (POOL.size() < POOL_SIZE) {
+                    POOL.add(create());
+                }
+            } catch (RuntimeException ex) {
+                LOG.warn("Error refilling PKCE pool", ex);
+            } finally {
+                REFILLING.set(false);
+            }
+        });
+    }
+}
@@ -7,9 +7,10 @@ import com.github.eduramiba.javafx.auth0.rest.ApiRESTIOException;
 import com.github.eduramiba.javafx.auth0.rest.ClientAuthenticationCredentials;
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import okhttp3.FormBody;
 import okhttp3.MediaType;
 import okhttp3.Request;
-import okhttp3.RequestBody;
 import okhttp3.Response;
 
 public class RESTAuth0Client extends AbstractRESTConsumer {
@@ -22,17 +23,42 @@ public class RESTAuth0Client extends AbstractRESTConsumer {
         return get(baseURI.resolve("/userinfo"), Auth0UserInfo.class);
     }
 
+    public CompletableFuture<Auth0UserInfo> getUserInfoAsync() {
+        return getAsync(baseURI.resolve("/userinfo"), Auth0UserInfo.class);
+    }
+
+    public JSONWebKeySet getJWKS(final URI jwksURI) throws IOException {
+        return get(jwksURI, JSONWebKeySet.class);
+    }
+
+    public CompletableFuture<JSONWebKeySet> getJWKSAsync(final URI jwksURI) {
+        return getAsync(jwksURI, JSONWebKeySet.class);
+    }
+
     public static final MediaType FORM_URL_ENCODED = MediaType.parse("application/x-www-form-urlencoded");
 
     public Auth0OauthResponse getOauthToken(final String clientId, final String code, final String codeVerifier, final String redirectUri) throws IOException {
-        return withRetry(() -> {
-            final String data = "grant_type=authorization_code&client_id=" + clientId + "&code_verifier=" + codeVerifier + "&code=" + code + "&redirect_uri=" + redirectUri;
-            final RequestBody body = RequestBody.create(data, FORM_URL_ENCODED);
+        return withRetry("POST", baseURI.resolve("/oauth/token"), () -> {
+            final Request request = buildOauthTokenRequest(clientId, code, codeVerifier, redirectUri);
+
+            try (Response response = getClient().newCall(request).execute()) {
+                return parseResponseBody(response, Auth0OauthResponse.class);
+            } catch (IOException e) {
+                throw new ApiRESTIOException((IOException) e);
+            }
+        });
+    }
+
+    public CompletableFuture<Auth0OauthResponse> getOauthTokenAsync(final String clientId, final String code, final String codeVerifier, final String redirectUri) {
+        return executeAsync(
+                () -> buildOauthTokenRequest(clientId, code, codeVerifier, redirectUri),
+                response -> parseResponseBody(response, Auth0OauthResponse.class)
+        );
+    }
 
-            final Request request = new Request.Builder()
-                    .url(baseURI.resolve("/oauth/token").toURL())
-                    .post(body)
-                    .build();
+    public Auth0OauthResponse refreshOauthToken(final String clientId, final String refreshToken) throws IOException {
+        return withRetry("POST", baseURI.resolve("/oauth/token"), () -> {
+            final Request request = buildRefreshTokenRequest(clientId, refreshToken);
 
             try (Response response = getClient().newCall(request).execute()) {
                 return parseResponseBody(response, Auth0OauthResponse.class);
@@ -41,4 +67,39 @@ public class RESTAuth0Client extends AbstractRESTConsumer {
             }
         });
     }
+
+    public CompletableFuture<Auth0OauthResponse> refreshOauthTokenAsync(final String clientId, final String refreshToken) {
+        return executeAsync(
+                () -> buildRefreshTokenRequest(clientId, refreshToken),
+                response -> parseResponseBody(response, Auth0OauthResponse.class)
+        );
+    }
+
+    private Request buildRefreshTokenRequest(final String clientId, final String refreshToken) {
+        final FormBody body = new FormBody.Builder()
+                .add("grant_type", "refresh_token")
+                .add("client_id", clientId)
+                .add("refresh_token", refreshToken)
+                .build();
+
+        return new Request.Builder()
+                .url(baseURI.resolve("/oauth/token").toString())
+                .post(body)
+                .build();
+    }
+
+    private Request buildOauthTokenRequest(final String clientId, final String code, final String codeVerifier, final String redirectUri) {
+        final FormBody body = new FormBody.Builder()
+                .add("grant_type", "authorization_code")
+                .add("client_id", clientId)
+                .add("code_verifier", codeVerifier)
+                .add("code", code)
+                .add("redirect_uri", redirectUri)
+                .build();
+
+        return new Request.Builder()
+                .url(baseURI.resolve("/oauth/token").toString())
+                .post(body)
+                .build();
+    }
 }
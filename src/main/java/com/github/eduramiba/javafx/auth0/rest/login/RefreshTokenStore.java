@@ -0,0 +1,126 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import static com.github.eduramiba.javafx.auth0.Constants.APP_HOME_FOLDER;
+import static com.github.eduramiba.javafx.auth0.Constants.PREF_REFRESH_TOKEN;
+import com.github.eduramiba.javafx.auth0.preferences.AppPreferences;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Optional;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the refresh token of the logged user encrypted with AES-GCM in the app preferences.
+ * <p>
+ * The key is generated on first use and stored in the app home folder, readable only by the owner where the file system supports it. This keeps the long lived token out of the plain text preferences store; it does not
+ * protect against code running as the same OS user.
+ * </p>
+ */
+public class RefreshTokenStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RefreshTokenStore.class);
+
+    private static final String KEY_FILE = "token.key";
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int KEY_BITS = 256;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static SecretKey key;
+
+    public static void save(final String refreshToken) {
+        if (StringUtils.isBlank(refreshToken)) {
+            clear();
+            return;
+        }
+
+        try {
+            final byte[] iv = new byte[IV_BYTES];
+            RANDOM.nextBytes(iv);
+
+            final Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, getKey(), new GCMParameterSpec(TAG_BITS, iv));
+            final byte[] encrypted = cipher.doFinal(refreshToken.getBytes(StandardCharsets.UTF_8));
+
+            final ByteBuffer data = ByteBuffer.allocate(iv.length + encrypted.length);
+            data.put(iv).put(encrypted);
+
+            AppPreferences.saveGlobalPreference(PREF_REFRESH_TOKEN, Base64.encodeBase64String(data.array()));
+        } catch (IOException | GeneralSecurityException ex) {
+            LOG.error("Error saving refresh token", ex);
+        }
+    }
+
+    public static Optional<String> load() {
+        return AppPreferences.getGlobalPreference(PREF_REFRESH_TOKEN, value -> {
+            try {
+                final byte[] data = Base64.decodeBase64(value);
+
+                final Cipher cipher = Cipher.getInstance(CIPHER);
+                cipher.init(Cipher.DECRYPT_MODE, getKey(), new GCMParameterSpec(TAG_BITS, data, 0, IV_BYTES));
+
+                return new String(cipher.doFinal(data, IV_BYTES, data.length - IV_BYTES), StandardCharsets.UTF_8);
+            } catch (IOException | GeneralSecurityException ex) {
+                //Key lost or token tampered with, the user has to log in again:
+                LOG.warn("Error reading refresh token", ex);
+                return null;
+            }
+        });
+    }
+
+    public static boolean exists() {
+        return AppPreferences.getGlobalPreference(PREF_REFRESH_TOKEN, value -> value).isPresent();
+    }
+
+    public static void clear() {
+        AppPreferences.removeGlobalPreference(PREF_REFRESH_TOKEN);
+    }
+
+    /**
+     * @return Local secret key, generated on first use. Also used to sign which id token was last verified, see {@link JWTUtils}
+     */
+    static synchronized SecretKey getKey() throws IOException, GeneralSecurityException {
+        if (key != null) {
+            return key;
+        }
+
+        final Path keyFile = new File(new File(System.getProperty("user.home"), APP_HOME_FOLDER), KEY_FILE).toPath();
+        if (Files.isRegularFile(keyFile)) {
+            key = new SecretKeySpec(Files.readAllBytes(keyFile), "AES");
+            return key;
+        }
+
+        final KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(KEY_BITS, RANDOM);
+        final SecretKey generated = generator.generateKey();
+
+        Files.createDirectories(keyFile.getParent());
+        try {
+            //Created with owner only permissions before the key is written, so it is never readable by other users:
+            Files.createFile(keyFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException ex) {
+            LOG.debug("Owner only permissions not supported for {}", keyFile);
+            Files.createFile(keyFile);
+        }
+        Files.write(keyFile, generated.getEncoded());
+
+        key = generated;
+        return key;
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thrown without blocking when no signing keys are loaded yet, so the token signature can't be checked. The token must not be trusted, it can be verified again once {@link #getKeysLoaded()} completes.
+ */
+public class SigningKeyUnavailableException extends JWTVerificationException {
+
+    private final transient String keyId;
+    private final transient CompletableFuture<Void> keysLoaded;
+
+    public SigningKeyUnavailableException(String keyId, CompletableFuture<Void> keysLoaded) {
+        super("Signing key not available yet: " + keyId);
+        this.keyId = keyId;
+        this.keysLoaded = keysLoaded;
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * @return Future completed when the background key set fetch finishes, successfully or not
+     */
+    public CompletableFuture<Void> getKeysLoaded() {
+        return keysLoaded;
+    }
+}
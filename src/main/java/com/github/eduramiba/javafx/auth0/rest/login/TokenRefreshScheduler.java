@@ -0,0 +1,236 @@
+package com.github.eduramiba.javafx.auth0.rest.login;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.github.eduramiba.javafx.auth0.UserInfo;
+import com.github.eduramiba.javafx.auth0.rest.ApiRESTException;
+import java.net.HttpURLConnection;
+import java.util.Date;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Refreshes the session in the background some time before the id token expires, using the stored refresh token, so the user is not sent back to the interactive login.
+ * <p>
+ * Refreshes are spread with a random jitter and failed ones are retried with exponential backoff. A rejected refresh token (the grant was revoked or expired) stops the scheduler and is removed from the
+ * {@link RefreshTokenStore}.
+ * </p>
+ * <p>
+ * The refreshed user is handed to the listener, which is expected to call {@link #schedule(UserInfo)} again with it.
+ * </p>
+ */
+public class TokenRefreshScheduler implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenRefreshScheduler.class);
+
+    private final long refreshBeforeMillis;
+    private final long jitterMillis;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Supplier<CompletableFuture<Optional<UserInfo>>> refresher;
+    private final Consumer<UserInfo> listener;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "Token refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //Guarded by this:
+    private ScheduledFuture<?> scheduled;
+    private long generation = 0;
+    private int failures = 0;
+
+    private TokenRefreshScheduler(long refreshBeforeMillis, long jitterMillis, long minBackoffMillis, long maxBackoffMillis, Supplier<CompletableFuture<Optional<UserInfo>>> refresher, Consumer<UserInfo> listener) {
+        this.refreshBeforeMillis = refreshBeforeMillis;
+        this.jitterMillis = jitterMillis;
+        this.minBackoffMillis = minBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.refresher = refresher;
+        this.listener = listener;
+    }
+
+    /**
+     * Schedules the refresh of the given session, replacing any previous one. Nothing is scheduled if there is no stored refresh token.
+     *
+     * @param userInfo Logged user
+     */
+    public synchronized void schedule(final UserInfo userInfo) {
+        cancel();
+
+        if (userInfo == null || !RefreshTokenStore.exists()) {
+            return;
+        }
+
+        final Date expiresAt;
+        try {
+            expiresAt = JWT.decode(userInfo.getJwtToken()).getExpiresAt();
+        } catch (JWTDecodeException ex) {
+            LOG.warn("Not scheduling token refresh, invalid token");
+            return;
+        }
+
+        final long jitter = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis) : 0;
+        final long delay = expiresAt != null ? Math.max(0, expiresAt.getTime() - System.currentTimeMillis() - refreshBeforeMillis - jitter) : 0;
+
+        LOG.debug("Token refresh scheduled in {} s", TimeUnit.MILLISECONDS.toSeconds(delay));
+        failures = 0;
+        scheduleRefresh(delay);
+    }
+
+    public synchronized void cancel() {
+        generation++;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void scheduleRefresh(final long delayMillis) {
+        final long scheduledGeneration = generation;
+        scheduled = executor.schedule(() -> refresh(scheduledGeneration), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh(final long scheduledGeneration) {
+        LOG.debug("Refreshing session tokens");
+
+        CompletableFuture<Optional<UserInfo>> future;
+        try {
+            future = refresher.get();
+        } catch (RuntimeException ex) {
+            future = CompletableFuture.failedFuture(ex);
+        }
+
+        future.whenComplete((userInfo, ex) -> {
+            synchronized (this) {
+                if (scheduledGeneration != generation) {
+                    //Cancelled or rescheduled meanwhile (logout, new login):
+                    return;
+                }
+
+                if (ex != null) {
+                    onRefreshFailure(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                    return;
+                }
+
+                scheduled = null;
+                failures = 0;
+                if (userInfo.isEmpty()) {
+                    LOG.warn("Session refresh did not return a valid token");
+                    return;
+                }
+            }
+
+            LOG.info("Session refreshed for {}", userInfo.get().getEmail());
+            listener.accept(userInfo.get());
+        });
+    }
+
+    private void onRefreshFailure(final Throwable ex) {
+        if (isRejected(ex)) {
+            LOG.warn("Refresh token rejected, a new login is required", ex);
+            RefreshTokenStore.clear();
+            scheduled = null;
+            return;
+        }
+
+        failures++;
+        final long backoff = Math.min(maxBackoffMillis, minBackoffMillis << Math.min(failures - 1, 20));
+        final long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+        LOG.warn("Error refreshing session (attempt {}), retrying in {} s", failures, TimeUnit.MILLISECONDS.toSeconds(delay), ex);
+        scheduleRefresh(delay);
+    }
+
+    private static boolean isRejected(final Throwable ex) {
+        if (!(ex instanceof ApiRESTException)) {
+            return false;
+        }
+
+        final int status = ((ApiRESTException) ex).getStatus();
+        return status == HttpURLConnection.HTTP_BAD_REQUEST || status == HttpURLConnection.HTTP_UNAUTHORIZED || status == HttpURLConnection.HTTP_FORBIDDEN;
+    }
+
+    public static class Builder {
+
+        private long refreshBeforeMillis = TimeUnit.MINUTES.toMillis(15);
+        private long jitterMillis = TimeUnit.MINUTES.toMillis(1);
+        private long minBackoffMillis = TimeUnit.SECONDS.toMillis(10);
+        private long maxBackoffMillis = TimeUnit.MINUTES.toMillis(5);
+        private Supplier<CompletableFuture<Optional<UserInfo>>> refresher = Auth0PKCEFlow::refreshLoginAsync;
+        private Consumer<UserInfo> listener;
+
+        private Builder() {
+        }
+
+        /**
+         * @param value How long before expiry to refresh. Should be longer than the minimum validity required by {@link JWTUtils#verifyToken(String)} (10 minutes)
+         * @return This builder
+         */
+        public Builder refreshBeforeMillis(final long value) {
+            this.refreshBeforeMillis = value;
+            return this;
+        }
+
+        public Builder jitterMillis(final long value) {
+            this.jitterMillis = value;
+            return this;
+        }
+
+        public Builder minBackoffMillis(final long value) {
+            this.minBackoffMillis = value;
+            return this;
+        }
+
+        public Builder maxBackoffMillis(final long value) {
+            this.maxBackoffMillis = value;
+            return this;
+        }
+
+        public Builder refresher(final Supplier<CompletableFuture<Optional<UserInfo>>> value) {
+            this.refresher = value;
+            return this;
+        }
+
+        /**
+         * @param value Called from a background thread with each refreshed user
+         * @return This builder
+         */
+        public Builder listener(final Consumer<UserInfo> value) {
+            this.listener = value;
+            return this;
+        }
+
+        public TokenRefreshScheduler build() {
+            return new TokenRefreshScheduler(
+                    refreshBeforeMillis,
+                    jitterMillis,
+                    Math.max(1, minBackoffMillis),
+                    Math.max(minBackoffMillis, maxBackoffMillis),
+                    Objects.requireNonNull(refresher, "refresher"),
+                    Objects.requireNonNull(listener, "listener")
+            );
+        }
+    }
+
+    public static TokenRefreshScheduler.Builder builder() {
+        return new TokenRefreshScheduler.Builder();
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.eduramiba.javafx.auth0.rest.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * {@link RESTMetrics} backed by HdrHistogram {@link Recorder}s, which record latencies without locking or allocating. Latencies are kept in microseconds.
+ */
+public class HdrHistogramRESTMetrics implements RESTMetrics {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final int MAX_STATUS = 600;
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    //Method -> endpoint -> metrics. Nested maps avoid building a composite key on every call:
+    private final Map<String, Map<String, EndpointMetrics>> endpoints = new ConcurrentHashMap<>();
+
+    private static class EndpointMetrics {
+
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS);
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+
+        //Accumulated since creation, only touched while holding the lock of this object:
+        private final Histogram accumulated = new Histogram(SIGNIFICANT_DIGITS);
+        private Histogram interval = null;
+
+        private synchronized Histogram collect() {
+            interval = recorder.getIntervalHistogram(interval);
+            accumulated.add(interval);
+            return accumulated.copy();
+        }
+    }
+
+    private EndpointMetrics metricsFor(final String method, final String endpoint) {
+        return endpoints
+                .computeIfAbsent(method, m -> new ConcurrentHashMap<>())
+                .computeIfAbsent(endpoint, e -> new EndpointMetrics());
+    }
+
+    @Override
+    public void recordCall(String method, String endpoint, int status, long durationNanos, long bytesOut, long bytesIn) {
+        final EndpointMetrics metrics = metricsFor(method, endpoint);
+
+        metrics.recorder.recordValue(Math.max(0, durationNanos / 1000));
+        metrics.statusCounts.incrementAndGet(status > 0 && status < MAX_STATUS ? status : 0);
+        if (bytesOut > 0) {
+            metrics.bytesOut.add(bytesOut);
+        }
+        if (bytesIn > 0) {
+            metrics.bytesIn.add(bytesIn);
+        }
+    }
+
+    @Override
+    public void recordRetry(String method, String endpoint) {
+        metricsFor(method, endpoint).retries.increment();
+    }
+
+    @Override
+    public RESTMetricsSnapshot snapshot() {
+        final List<RESTMetricsSnapshot.EndpointSnapshot> result = new ArrayList<>();
+
+        endpoints.forEach((method, byEndpoint) -> {
+            byEndpoint.forEach((endpoint, metrics) -> {
+                final Histogram histogram = metrics.collect();
+
+                final Map<Integer, Long> statusCounts = new TreeMap<>();
+                for (int status = 0; status < MAX_STATUS; status++) {
+                    final long count = metrics.statusCounts.get(status);
+                    if (count > 0) {
+                        statusCounts.put(status, count);
+                    }
+                }
+
+                result.add(new RESTMetricsSnapshot.EndpointSnapshot(
+                        method,
+                        endpoint,
+                        histogram.getTotalCount(),
+                        histogram.getMean() / MICROS_PER_MILLI,
+                        histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                        histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                        histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                        histogram.getMaxValue() / MICROS_PER_MILLI,
+                        Collections.unmodifiableMap(statusCounts),
+                        metrics.retries.sum(),
+                        metrics.bytesOut.sum(),
+                        metrics.bytesIn.sum()
+                ));
+            });
+        });
+
+        result.sort(Comparator.comparing(RESTMetricsSnapshot.EndpointSnapshot::getEndpoint)
+                .thenComparing(RESTMetricsSnapshot.EndpointSnapshot::getMethod));
+
+        return new RESTMetricsSnapshot(System.currentTimeMillis(), Collections.unmodifiableList(result));
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.eduramiba.javafx.auth0.rest.metrics;
+
+import java.io.IOException;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Response;
+
+/**
+ * Collects timing, status and body sizes of a single call and reports them to {@link RESTMetrics} when the call ends.
+ */
+class MetricsEventListener extends EventListener {
+
+    private final RESTMetrics metrics;
+
+    private long startNanos;
+    private int status;
+    private long bytesOut;
+    private long bytesIn;
+
+    MetricsEventListener(RESTMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        bytesOut += byteCount;
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        status = response.code();
+    }
+
+    @Override
+    public void cacheHit(Call call, Response response) {
+        status = response.code();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        bytesIn += byteCount;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        record(call);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        record(call);
+    }
+
+    private void record(final Call call) {
+        metrics.recordCall(
+                call.request().method(),
+                RESTMetricsRegistry.endpointTemplate(call.request().url().encodedPath()),
+                status,
+                System.nanoTime() - startNanos,
+                bytesOut,
+                bytesIn
+        );
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.eduramiba.javafx.auth0.rest.metrics;
+
+import java.util.Collections;
+
+/**
+ * Metrics SPI for the REST clients. Implementations must be thread safe and should not allocate when recording, since they are called for every HTTP call.
+ * <p>
+ * Endpoints are URL path templates where identifiers are replaced by <code>{id}</code>, see {@link RESTMetricsRegistry#endpointTemplate(String)}.
+ * </p>
+ */
+public interface RESTMetrics {
+
+    /**
+     * Records a finished HTTP call.
+     *
+     * @param method HTTP method
+     * @param endpoint Endpoint template
+     * @param status HTTP status code, 0 if no response was received
+     * @param durationNanos Call duration, including reading the response body
+     * @param bytesOut Request body bytes sent
+     * @param bytesIn Response body bytes received
+     */
+    void recordCall(String method, String endpoint, int status, long durationNanos, long bytesOut, long bytesIn);
+
+    /**
+     * Records a retry of a failed request.
+     *
+     * @param method HTTP method
+     * @param endpoint Endpoint template
+     */
+    void recordRetry(String method, String endpoint);
+
+    RESTMetricsSnapshot snapshot();
+
+    RESTMetrics NOOP = new RESTMetrics() {
+        @Override
+        public void recordCall(String method, String endpoint, int status, long durationNanos, long bytesOut, long bytesIn) {
+            //NOOP
+        }
+
+        @Override
+        public void recordRetry(String method, String endpoint) {
+            //NOOP
+        }
+
+        @Override
+        public RESTMetricsSnapshot snapshot() {
+            return new RESTMetricsSnapshot(System.currentTimeMillis(), Collections.emptyList());
+        }
+    };
+}
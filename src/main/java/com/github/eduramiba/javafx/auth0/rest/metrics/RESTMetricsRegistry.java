@@ -0,0 +1,150 @@
+package com.github.eduramiba.javafx.auth0.rest.metrics;
+
+import static com.github.eduramiba.javafx.auth0.Constants.APP_HOME_FOLDER;
+import com.github.eduramiba.javafx.auth0.utils.Utils;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import okhttp3.EventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the process-wide {@link RESTMetrics} used by all REST consumers. Metrics are disabled ({@link RESTMetrics#NOOP}) until {@link #set(RESTMetrics)} is called, and while disabled calls get no event listener at all.
+ */
+public class RESTMetricsRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RESTMetricsRegistry.class);
+
+    private static final String ID_PLACEHOLDER = "{id}";
+    private static final String UNKNOWN_METHOD = "UNKNOWN";
+    private static final int MAX_CACHED_TEMPLATES = 1024;
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+"
+            + "|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}"
+            + "|[0-9a-fA-F]{16,}"
+            + "|[^/]{32,}"
+    );
+
+    private static final Map<String, String> TEMPLATES = new ConcurrentHashMap<>();
+
+    private static volatile RESTMetrics metrics = RESTMetrics.NOOP;
+
+    private static ScheduledExecutorService dumpExecutor;
+    private static ScheduledFuture<?> dumpTask;
+
+    public static final EventListener.Factory EVENT_LISTENER_FACTORY = call -> {
+        final RESTMetrics current = metrics;
+        return current == RESTMetrics.NOOP ? EventListener.NONE : new MetricsEventListener(current);
+    };
+
+    public static RESTMetrics get() {
+        return metrics;
+    }
+
+    public static void set(final RESTMetrics restMetrics) {
+        metrics = Objects.requireNonNull(restMetrics);
+    }
+
+    public static RESTMetricsSnapshot snapshot() {
+        return metrics.snapshot();
+    }
+
+    /**
+     * @param method HTTP method, null if the caller does not know it
+     * @param uri Request URI, null if the caller does not know it
+     */
+    public static void recordRetry(final String method, final URI uri) {
+        final RESTMetrics current = metrics;
+        if (current != RESTMetrics.NOOP) {
+            current.recordRetry(method != null ? method : UNKNOWN_METHOD, endpointTemplate(uri != null ? uri.getRawPath() : null));
+        }
+    }
+
+    /**
+     * Converts a URL path to an endpoint template by replacing identifier-like segments (numbers, UUIDs, long hex or opaque strings) with <code>{id}</code>, so latencies of the same endpoint are aggregated together.
+     *
+     * @param path URL path
+     * @return Endpoint template
+     */
+    public static String endpointTemplate(final String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+
+        final String cached = TEMPLATES.get(path);
+        if (cached != null) {
+            return cached;
+        }
+
+        final String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (!segments[i].isEmpty() && ID_SEGMENT.matcher(segments[i]).matches()) {
+                segments[i] = ID_PLACEHOLDER;
+            }
+        }
+
+        final String template = String.join("/", segments);
+        if (TEMPLATES.size() < MAX_CACHED_TEMPLATES) {
+            TEMPLATES.put(path, template);
+        }
+
+        return template;
+    }
+
+    /**
+     * Periodically writes a JSON snapshot of the metrics to <code>rest-metrics.json</code> in the log directory.
+     *
+     * @param period Period between dumps
+     */
+    public static synchronized void startPeriodicDump(final Duration period) {
+        stopPeriodicDump();
+
+        if (dumpExecutor == null) {
+            dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "REST metrics dump");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+
+        final long periodMillis = period.toMillis();
+        dumpTask = dumpExecutor.scheduleAtFixedRate(RESTMetricsRegistry::dump, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopPeriodicDump() {
+        if (dumpTask != null) {
+            dumpTask.cancel(false);
+            dumpTask = null;
+        }
+    }
+
+    private static void dump() {
+        try {
+            final Path logsFolder = Paths.get(System.getProperty("user.home"), APP_HOME_FOLDER, "logs");
+            Files.createDirectories(logsFolder);
+
+            final Path target = logsFolder.resolve("rest-metrics.json");
+            final Path temp = logsFolder.resolve("rest-metrics.json.tmp");
+
+            Files.writeString(temp, Utils.toJSONPrettyPrint(snapshot()), StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException ex) {
+            LOG.warn("Error writing REST metrics", ex);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.eduramiba.javafx.auth0.rest.metrics;
+
+import com.github.eduramiba.javafx.auth0.utils.Utils;
+import java.util.List;
+import java.util.Map;
+
+public class RESTMetricsSnapshot {
+
+    private final long timestampMillis;
+    private final List<EndpointSnapshot> endpoints;
+
+    public RESTMetricsSnapshot(long timestampMillis, List<EndpointSnapshot> endpoints) {
+        this.timestampMillis = timestampMillis;
+        this.endpoints = endpoints;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public List<EndpointSnapshot> getEndpoints() {
+        return endpoints;
+    }
+
+    @Override
+    public String toString() {
+        return Utils.toJSONPrettyPrint(this);
+    }
+
+    public static class EndpointSnapshot {
+
+        private final String method;
+        private final String endpoint;
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+        private final Map<Integer, Long> statusCounts;
+        private final long retries;
+        private final long bytesOut;
+        private final long bytesIn;
+
+        public EndpointSnapshot(String method, String endpoint, long count, double meanMillis, double p50Millis, double p90Millis, double p99Millis, double maxMillis,
+                Map<Integer, Long> statusCounts, long retries, long bytesOut, long bytesIn) {
+            this.method = method;
+            this.endpoint = endpoint;
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+            this.statusCounts = statusCounts;
+            this.retries = retries;
+            this.bytesOut = bytesOut;
+            this.bytesIn = bytesIn;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        /**
+         * @return Calls per HTTP status code. Status 0 counts calls that failed without a response
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            return statusCounts;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        public long getBytesOut() {
+            return bytesOut;
+        }
+
+        public long getBytesIn() {
+            return bytesIn;
+        }
+    }
+}
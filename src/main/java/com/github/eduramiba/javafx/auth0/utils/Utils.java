@@ -1,32 +1,79 @@
 package com.github.eduramiba.javafx.auth0.utils;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedOutputStream;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jooq.lambda.Unchecked;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Utils {
 
+    private static final Logger LOG = LoggerFactory.getLogger(Utils.class);
+
+    /**
+     * System property that enables the Blackbird module, which replaces reflection in property access with generated lambdas. Start the app with {@code -Djson-blackbird} to enable it.
+     */
+    public static final String BLACKBIRD_PROPERTY = "json-blackbird";
+
     protected static final ObjectMapper JSON_PARSER = new ObjectMapper();
+    protected static final ObjectMapper JSON_STRICT_PARSER = new ObjectMapper();
     protected static final ObjectMapper JSON_WRITER_PRETTY_PRINT = new ObjectMapper();
     protected static final ObjectMapper JSON_WRITER = new ObjectMapper();
 
+    //Readers and writers have the root type resolved, so each call skips the type lookup of the mapper:
+    private static final Map<Type, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Type, ObjectReader> STRICT_READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectWriter> STREAM_WRITERS = new ConcurrentHashMap<>();
+
     static {
         configureJSONReader(JSON_PARSER);
+        configureStrictJSONReader(JSON_STRICT_PARSER);
         configureJSONWriter(JSON_WRITER);
         configureJSONWriter(JSON_WRITER_PRETTY_PRINT);
 
         JSON_WRITER_PRETTY_PRINT.configure(SerializationFeature.INDENT_OUTPUT, true);
+
+        //Codecs generated at compile time for the app DTOs, so they skip bean introspection and reflective creators:
+        JSON_PARSER.registerModule(new GeneratedJSONCodecsModule());
+        JSON_STRICT_PARSER.registerModule(new GeneratedJSONCodecsModule());
+        JSON_WRITER.registerModule(new GeneratedJSONCodecsModule());
+        JSON_WRITER_PRETTY_PRINT.registerModule(new GeneratedJSONCodecsModule());
+
+        if (isBlackbirdEnabled()) {
+            LOG.info("Using Blackbird accelerated JSON mappers");
+            JSON_PARSER.registerModule(new BlackbirdModule());
+            JSON_STRICT_PARSER.registerModule(new BlackbirdModule());
+            JSON_WRITER.registerModule(new BlackbirdModule());
+        }
+    }
+
+    private static boolean isBlackbirdEnabled() {
+        final String value = System.getProperty(BLACKBIRD_PROPERTY);
+        return value != null && !"false".equalsIgnoreCase(value);
     }
 
     public static void configureJSONReader(ObjectMapper mapper) {
@@ -41,6 +88,19 @@ public class Utils {
                 .registerModule(new JavaTimeModule());
     }
 
+    /**
+     * Configures a mapper for JSON produced by servers: standard syntax only and exact enum names, which is cheaper to parse. Unknown properties are still ignored so new server fields don't break the app.
+     *
+     * @param mapper Mapper to configure
+     */
+    public static void configureStrictJSONReader(ObjectMapper mapper) {
+        mapper
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true)
+                .registerModule(new Jdk8Module())
+                .registerModule(new JavaTimeModule());
+    }
+
     public static void configureJSONWriter(ObjectMapper mapper) {
         mapper
                 .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
@@ -69,28 +129,142 @@ public class Utils {
                 .registerModule(new JavaTimeModule());
     }
 
+    /**
+     * Returns the cached lenient reader of a type: allows comments, single quotes, unquoted field names and case insensitive enums. Meant for files edited by people.
+     *
+     * @param type Class or generic type
+     * @return Reader
+     */
+    public static ObjectReader readerFor(Type type) {
+        return READERS.computeIfAbsent(type, t -> JSON_PARSER.readerFor(JSON_PARSER.constructType(t)));
+    }
+
+    /**
+     * Returns the cached strict reader of a type, for JSON written by programs such as server responses.
+     *
+     * @param type Class or generic type
+     * @return Reader
+     */
+    public static ObjectReader strictReaderFor(Type type) {
+        return STRICT_READERS.computeIfAbsent(type, t -> JSON_STRICT_PARSER.readerFor(JSON_STRICT_PARSER.constructType(t)));
+    }
+
+    public static ObjectWriter writerFor(Class<?> clazz) {
+        return WRITERS.computeIfAbsent(clazz, JSON_WRITER::writerFor);
+    }
+
+    private static ObjectWriter streamWriterFor(Class<?> clazz) {
+        return STREAM_WRITERS.computeIfAbsent(clazz, c -> JSON_WRITER.writerFor(c).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+    }
+
     public static <T> T parseJSON(String json, Class<T> clazz) throws IOException {
         if (json == null) {
             return null;
         }
 
-        return JSON_PARSER.readValue(json, clazz);
+        return readerFor(clazz).readValue(json);
     }
 
     public static <T> T parseJSON(File file, TypeReference<T> type) throws IOException {
-        return JSON_PARSER.readValue(file, type);
+        return readerFor(type.getType()).readValue(file);
     }
 
     public static <T> T parseJSON(File file, Class<T> clazz) throws IOException {
-        return JSON_PARSER.readValue(file, clazz);
+        return readerFor(clazz).readValue(file);
     }
 
     public static <T> T parseJSON(InputStream is, TypeReference<T> type) throws IOException {
-        return JSON_PARSER.readValue(is, type);
+        return readerFor(type.getType()).readValue(is);
     }
 
     public static <T> T parseJSON(InputStream is, Class<T> clazz) throws IOException {
-        return JSON_PARSER.readValue(is, clazz);
+        return readerFor(clazz).readValue(is);
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON without decoding it to a String first.
+     *
+     * @param json JSON bytes
+     * @param clazz Type to parse
+     * @return Parsed value or null if the bytes are null
+     * @throws IOException If the JSON is not valid
+     */
+    public static <T> T parseJSON(byte[] json, Class<T> clazz) throws IOException {
+        if (json == null) {
+            return null;
+        }
+
+        return readerFor(clazz).readValue(json);
+    }
+
+    public static <T> T parseJSON(byte[] json, TypeReference<T> type) throws IOException {
+        if (json == null) {
+            return null;
+        }
+
+        return readerFor(type.getType()).readValue(json);
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON from the remaining bytes of the buffer. Heap buffers are parsed in place, direct buffers are streamed. The buffer position is advanced.
+     *
+     * @param json JSON buffer
+     * @param clazz Type to parse
+     * @return Parsed value or null if the buffer is null
+     * @throws IOException If the JSON is not valid
+     */
+    public static <T> T parseJSON(ByteBuffer json, Class<T> clazz) throws IOException {
+        return parseJSON(json, readerFor(clazz));
+    }
+
+    public static <T> T parseJSON(ByteBuffer json, TypeReference<T> type) throws IOException {
+        return parseJSON(json, readerFor(type.getType()));
+    }
+
+    private static <T> T parseJSON(ByteBuffer json, ObjectReader reader) throws IOException {
+        if (json == null) {
+            return null;
+        }
+
+        if (json.hasArray()) {
+            final T value = reader.readValue(json.array(), json.arrayOffset() + json.position(), json.remaining());
+            json.position(json.limit());
+            return value;
+        }
+
+        return reader.readValue(new ByteBufferBackedInputStream(json));
+    }
+
+    /**
+     * Parses JSON written by a program, like a server response, with the strict reader. Use {@link #parseJSON(InputStream, Class)} for JSON that may be hand written.
+     *
+     * @param is Input stream
+     * @param clazz Type to parse
+     * @return Parsed value
+     * @throws IOException If the stream can't be read or the JSON is not valid
+     */
+    public static <T> T parseStrictJSON(InputStream is, Class<T> clazz) throws IOException {
+        return strictReaderFor(clazz).readValue(is);
+    }
+
+    public static <T> T parseStrictJSON(InputStream is, TypeReference<T> type) throws IOException {
+        return strictReaderFor(type.getType()).readValue(is);
+    }
+
+    /**
+     * Lazily parses the elements of a top-level JSON array with the strict reader. Elements are read from the stream one by one as the iterator advances.
+     *
+     * @param is Input stream with a JSON array
+     * @param clazz Element type
+     * @return Iterator over the elements. Close it to close the stream before reaching the end
+     * @throws IOException If the stream can't be read
+     */
+    public static <T> MappingIterator<T> parseJSONValues(InputStream is, Class<T> clazz) throws IOException {
+        return strictReaderFor(clazz).readValues(is);
+    }
+
+    public static <T> MappingIterator<T> parseJSONValues(InputStream is, TypeReference<T> type) throws IOException {
+        return strictReaderFor(type.getType()).readValues(is);
     }
 
     public static <T> T parseJSON(String json, TypeReference<T> type) throws IOException {
@@ -98,7 +272,7 @@ public class Utils {
             return null;
         }
 
-        return JSON_PARSER.readValue(json, type);
+        return readerFor(type.getType()).readValue(json);
     }
 
     public static String toJSONPrettyPrint(Object value) {
@@ -110,9 +284,54 @@ public class Utils {
         }
     }
 
+    /**
+     * Serializes the value straight into the stream, without building an intermediate String. The stream is flushed but not closed.
+     *
+     * @param out Output stream
+     * @param value Value to serialize
+     * @throws IOException If the stream can't be written
+     */
+    public static void writeJSON(OutputStream out, Object value) throws IOException {
+        if (value == null) {
+            JSON_WRITER.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, null);
+            return;
+        }
+
+        streamWriterFor(value.getClass()).writeValue(out, value);
+    }
+
+    /**
+     * Serializes the value as UTF-8 JSON into the buffer, starting at its position, which is advanced.
+     *
+     * @param buffer Buffer to write to
+     * @param value Value to serialize
+     * @throws IOException If the value can't be serialized
+     * @throws java.nio.BufferOverflowException If the buffer does not have enough remaining space
+     */
+    public static void writeJSON(ByteBuffer buffer, Object value) throws IOException {
+        writeJSON(new ByteBufferBackedOutputStream(buffer), value);
+    }
+
+    /**
+     * @param value Value to serialize
+     * @return UTF-8 encoded JSON, without an intermediate String
+     */
+    public static byte[] toJSONBytes(Object value) {
+        try {
+            return value != null ? writerFor(value.getClass()).writeValueAsBytes(value) : JSON_WRITER.writeValueAsBytes(null);
+        } catch (JsonProcessingException ex) {
+            Unchecked.throwChecked(ex);
+            return null;
+        }
+    }
+
     public static String toJSON(Object value) {
+        if (value == null) {
+            return "null";
+        }
+
         try {
-            return JSON_WRITER.writeValueAsString(value);
+            return writerFor(value.getClass()).writeValueAsString(value);
         } catch (JsonProcessingException ex) {
             Unchecked.throwChecked(ex);
             return null;